@@ -0,0 +1,151 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.jgroups.Event;
+import org.jgroups.Message;
+import org.jgroups.PhysicalAddress;
+import org.jgroups.stack.IpAddress;
+import org.jgroups.stack.Protocol;
+import org.jgroups.util.Responses;
+import org.jgroups.util.TimeScheduler;
+import org.jgroups.util.UUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one discovery round of {@link KUBE_PING#findMembers(List, boolean, Responses)}: computing the targets
+ * (port_range expansion, split_clusters_during_rolling_update filtering), marshalling the request and passing the
+ * messages down. The pods are returned by a stub {@link Client} and the messages are counted (and dropped) by the
+ * protocol below KUBE_PING, so no sockets are involved. Run with -prof gc to get the bytes allocated per round.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class FindMembersBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int pods;
+
+    @Param({"0", "1", "3"})
+    int port_range;
+
+    @Param({"false", "true"})
+    boolean split_clusters;
+
+    KUBE_PING   ping;
+    StubClient  client;
+    PodList     list, changed_list;
+    boolean     changed;
+    DownCounter down;
+
+    @Setup
+    public void setup() throws Exception {
+        list=pods(pods, 0);
+        changed_list=pods(pods, 1);
+        client=new StubClient(list);
+        down=new DownCounter(new IpAddress(list.get(0).getIp(), 7800));
+        ping=new KUBE_PING();
+        ping.setDownProtocol(down);
+        ping.setAddress(UUID.randomUUID());
+        ping.client=client;
+        ping.tp_bind_port=7800;
+        ping.port_range=port_range;
+        ping.split_clusters_during_rolling_update=split_clusters;
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkMessagesSent() {
+        if(down.messages == 0)
+            throw new IllegalStateException("no discovery requests were sent");
+        down.messages=0;
+    }
+
+    /**
+     * A round with the same pods as the previous round
+     */
+    @Benchmark
+    public int findMembers() {
+        ping.findMembers(null, true, null);
+        return down.messages;
+    }
+
+    /**
+     * A round in which one pod has been replaced by a new pod (with a new IP address) since the previous round
+     */
+    @Benchmark
+    public int findMembersAfterPodChange() {
+        client.pods=(changed=!changed)? changed_list : list;
+        ping.findMembers(null, true, null);
+        return down.messages;
+    }
+
+    /**
+     * The pods of a Deployment during a rolling update: the first half of the pods belongs to the old ReplicaSet
+     * and the second half to the new one. With shift=1, the last pod has been replaced by a pod with a new IP
+     * address
+     */
+    static PodList pods(int count, int shift) {
+        List<Pod> pods=new ArrayList<>(count);
+        for(int i=0; i < count; i++) {
+            int n=i == count - 1? i + shift * count : i;
+            String ip="10." + (n >> 16 & 0xff) + "." + (n >> 8 & 0xff) + "." + (n & 0xff);
+            pods.add(new Pod("pod-" + n, ip, i < count / 2? "old-hash" : "new-hash", true));
+        }
+        return new PodList(pods, "1");
+    }
+
+    static class StubClient extends Client {
+        volatile PodList pods;
+
+        StubClient(PodList pods) {
+            super("https://localhost:6443/api/v1", null, 0, 0, 1, 0, null, org.jgroups.logging.LogFactory.getLog(StubClient.class));
+            this.pods=pods;
+        }
+
+        @Override
+        public CompletableFuture<PodList> getPodsAsync(String namespace, String labels, boolean dump_requests, TimeScheduler timer) {
+            return CompletableFuture.completedFuture(pods);
+        }
+    }
+
+    /**
+     * Takes the place of the transport: returns the physical address and counts (and drops) the messages
+     */
+    static class DownCounter extends Protocol {
+        final PhysicalAddress physical_addr;
+        int                   messages;
+
+        DownCounter(PhysicalAddress physical_addr) {
+            this.physical_addr=physical_addr;
+        }
+
+        @Override
+        public Object down(Event evt) {
+            return evt.getType() == Event.GET_PHYSICAL_ADDRESS? physical_addr : null;
+        }
+
+        @Override
+        public Object down(Message msg) {
+            messages++;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.jgroups.protocols.kubernetes;
+
+/**
+ * Generates the JSON of a synthetic pod list, as returned by the Kubernetes API server for a Deployment in the
+ * middle of a rolling update: the pods have the metadata (labels, annotations, owner references, managedFields),
+ * spec and status (conditions, container statuses) of real pods. Half of the pods belong to the old and half to the
+ * new ReplicaSet, and every 10th pod is not ready.
+ */
+public final class PodListGenerator {
+
+    private PodListGenerator() {
+    }
+
+    public static String generate(int count) {
+        StringBuilder sb=new StringBuilder(count * 6000 + 256);
+        sb.append("{\"kind\":\"PodList\",\"apiVersion\":\"v1\",\"metadata\":{\"resourceVersion\":\"").append(100000 + count)
+          .append("\"},\"items\":[");
+        for(int i=0; i < count; i++) {
+            if(i > 0)
+                sb.append(',');
+            pod(sb, i);
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void pod(StringBuilder sb, int i) {
+        String hash=i % 2 == 0? "5d8f7c9b4" : "7b6c5d4f8";
+        String name="infinispan-" + hash + "-" + Integer.toString(36 * 36 * 36 + i, 36);
+        String ip="10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+        boolean ready=i % 10 != 9;
+        String time="2024-05-" + (10 + i % 18) + "T0" + (i % 10) + ":1" + (i % 6) + ":2" + (i % 10) + "Z";
+
+        sb.append("{\"metadata\":{\"name\":\"").append(name).append("\",\"generateName\":\"infinispan-").append(hash)
+          .append("-\",\"namespace\":\"default\",\"uid\":\"").append(uid(i)).append("\",\"resourceVersion\":\"")
+          .append(90000 + i).append("\",\"creationTimestamp\":\"").append(time).append("\",")
+          .append("\"labels\":{\"app\":\"infinispan\",\"app.kubernetes.io/name\":\"infinispan\",\"app.kubernetes.io/component\":\"cache\",")
+          .append("\"pod-template-hash\":\"").append(hash).append("\"},")
+          .append("\"annotations\":{\"kubectl.kubernetes.io/restartedAt\":\"").append(time).append("\",")
+          .append("\"prometheus.io/scrape\":\"true\",\"prometheus.io/port\":\"11222\"},")
+          .append("\"ownerReferences\":[{\"apiVersion\":\"apps/v1\",\"kind\":\"ReplicaSet\",\"name\":\"infinispan-").append(hash)
+          .append("\",\"uid\":\"").append(uid(hash.hashCode())).append("\",\"controller\":true,\"blockOwnerDeletion\":true}],")
+          .append("\"managedFields\":[{\"manager\":\"kube-controller-manager\",\"operation\":\"Update\",\"apiVersion\":\"v1\",")
+          .append("\"time\":\"").append(time).append("\",\"fieldsType\":\"FieldsV1\",\"fieldsV1\":{\"f:metadata\":{")
+          .append("\"f:annotations\":{\".\":{},\"f:kubectl.kubernetes.io/restartedAt\":{},\"f:prometheus.io/port\":{},\"f:prometheus.io/scrape\":{}},")
+          .append("\"f:generateName\":{},\"f:labels\":{\".\":{},\"f:app\":{},\"f:app.kubernetes.io/component\":{},\"f:app.kubernetes.io/name\":{},\"f:pod-template-hash\":{}},")
+          .append("\"f:ownerReferences\":{\".\":{},\"k:{\\\"uid\\\":\\\"").append(uid(hash.hashCode())).append("\\\"}\":{}}},")
+          .append("\"f:spec\":{\"f:containers\":{\"k:{\\\"name\\\":\\\"infinispan\\\"}\":{\".\":{},\"f:env\":{\".\":{},")
+          .append("\"k:{\\\"name\\\":\\\"KUBERNETES_NAMESPACE\\\"}\":{\".\":{},\"f:name\":{},\"f:valueFrom\":{\".\":{},\"f:fieldRef\":{}}}},")
+          .append("\"f:image\":{},\"f:imagePullPolicy\":{},\"f:name\":{},\"f:ports\":{\".\":{},")
+          .append("\"k:{\\\"containerPort\\\":7800,\\\"protocol\\\":\\\"TCP\\\"}\":{\".\":{},\"f:containerPort\":{},\"f:name\":{},\"f:protocol\":{}},")
+          .append("\"k:{\\\"containerPort\\\":11222,\\\"protocol\\\":\\\"TCP\\\"}\":{\".\":{},\"f:containerPort\":{},\"f:name\":{},\"f:protocol\":{}}},")
+          .append("\"f:readinessProbe\":{\".\":{},\"f:httpGet\":{\".\":{},\"f:path\":{},\"f:port\":{}}},\"f:resources\":{}}},")
+          .append("\"f:dnsPolicy\":{},\"f:restartPolicy\":{},\"f:schedulerName\":{},\"f:terminationGracePeriodSeconds\":{}}}},")
+          .append("{\"manager\":\"kubelet\",\"operation\":\"Update\",\"apiVersion\":\"v1\",\"time\":\"").append(time)
+          .append("\",\"fieldsType\":\"FieldsV1\",\"fieldsV1\":{\"f:status\":{\"f:conditions\":{")
+          .append("\"k:{\\\"type\\\":\\\"ContainersReady\\\"}\":{\".\":{},\"f:lastProbeTime\":{},\"f:lastTransitionTime\":{},\"f:status\":{},\"f:type\":{}},")
+          .append("\"k:{\\\"type\\\":\\\"Initialized\\\"}\":{\".\":{},\"f:lastProbeTime\":{},\"f:lastTransitionTime\":{},\"f:status\":{},\"f:type\":{}},")
+          .append("\"k:{\\\"type\\\":\\\"Ready\\\"}\":{\".\":{},\"f:lastProbeTime\":{},\"f:lastTransitionTime\":{},\"f:status\":{},\"f:type\":{}}},")
+          .append("\"f:containerStatuses\":{},\"f:hostIP\":{},\"f:phase\":{},\"f:podIP\":{},\"f:podIPs\":{\".\":{},")
+          .append("\"k:{\\\"ip\\\":\\\"").append(ip).append("\\\"}\":{\".\":{},\"f:ip\":{}}},\"f:startTime\":{}}},\"subresource\":\"status\"}]},");
+
+        sb.append("\"spec\":{\"containers\":[{\"name\":\"infinispan\",\"image\":\"quay.io/infinispan/server:15.0\",")
+          .append("\"ports\":[{\"name\":\"ping\",\"containerPort\":7800,\"protocol\":\"TCP\"},{\"name\":\"hotrod\",\"containerPort\":11222,\"protocol\":\"TCP\"}],")
+          .append("\"env\":[{\"name\":\"KUBERNETES_NAMESPACE\",\"valueFrom\":{\"fieldRef\":{\"apiVersion\":\"v1\",\"fieldPath\":\"metadata.namespace\"}}}],")
+          .append("\"resources\":{\"limits\":{\"cpu\":\"2\",\"memory\":\"2Gi\"},\"requests\":{\"cpu\":\"500m\",\"memory\":\"1Gi\"}},")
+          .append("\"readinessProbe\":{\"httpGet\":{\"path\":\"/rest/v2/health\",\"port\":11222,\"scheme\":\"HTTP\"},\"periodSeconds\":10},")
+          .append("\"terminationMessagePath\":\"/dev/termination-log\",\"imagePullPolicy\":\"IfNotPresent\"}],")
+          .append("\"restartPolicy\":\"Always\",\"terminationGracePeriodSeconds\":30,\"dnsPolicy\":\"ClusterFirst\",")
+          .append("\"serviceAccountName\":\"infinispan\",\"nodeName\":\"node-").append(i % 50).append("\",\"schedulerName\":\"default-scheduler\"},");
+
+        String status=ready? "True" : "False";
+        sb.append("\"status\":{\"phase\":\"Running\",\"conditions\":[")
+          .append("{\"type\":\"Initialized\",\"status\":\"True\",\"lastProbeTime\":null,\"lastTransitionTime\":\"").append(time).append("\"},")
+          .append("{\"type\":\"Ready\",\"status\":\"").append(status).append("\",\"lastProbeTime\":null,\"lastTransitionTime\":\"").append(time).append("\"},")
+          .append("{\"type\":\"ContainersReady\",\"status\":\"").append(status).append("\",\"lastProbeTime\":null,\"lastTransitionTime\":\"").append(time).append("\"},")
+          .append("{\"type\":\"PodScheduled\",\"status\":\"True\",\"lastProbeTime\":null,\"lastTransitionTime\":\"").append(time).append("\"}],")
+          .append("\"hostIP\":\"192.168.").append(i % 50).append(".10\",\"podIP\":\"").append(ip).append("\",\"podIPs\":[{\"ip\":\"").append(ip).append("\"}],")
+          .append("\"startTime\":\"").append(time).append("\",\"containerStatuses\":[{\"name\":\"infinispan\",\"state\":{\"running\":{\"startedAt\":\"")
+          .append(time).append("\"}},\"lastState\":{},\"ready\":").append(ready).append(",\"restartCount\":").append(i % 3)
+          .append(",\"image\":\"quay.io/infinispan/server:15.0\",\"imageID\":\"quay.io/infinispan/server@sha256:")
+          .append("4f6a2b9c8d7e6f5a4b3c2d1e0f9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f1a\",\"containerID\":\"containerd://")
+          .append(uid(i).replace("-", "")).append("\",\"started\":true}],\"qosClass\":\"Burstable\"}}");
+    }
+
+    private static String uid(int i) {
+        return String.format("%08x-%04x-4%03x-a%03x-%012x", i * 2654435761L & 0xffffffffL, i & 0xffff, i >> 4 & 0xfff, i & 0xfff, (i * 0x9E3779B97F4A7C15L) >>> 16);
+    }
+}
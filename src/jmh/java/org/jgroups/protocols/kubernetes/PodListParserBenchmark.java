@@ -0,0 +1,80 @@
+package org.jgroups.protocols.kubernetes;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import org.jgroups.logging.LogFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the parsing of pod lists returned by the Kubernetes API server: the tree-based parser
+ * ({@link Client#parseJsonResult(String, String, String)}), the streaming parser
+ * ({@link Client#parseJsonStream(java.io.InputStream, String, String)}) and the readiness check
+ * ({@link Client#podRunning(JsonObject)}). Run with -prof gc to get the allocation rate, see the README.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5, time=1)
+@Measurement(iterations=5, time=1)
+@Fork(1)
+public class PodListParserBenchmark {
+
+    @Param({"10", "1000", "10000", "50000"})
+    int pods;
+
+    Client           client;
+    String           json;
+    byte[]           bytes;
+    List<JsonObject> statuses;
+
+    @Setup
+    public void setup() {
+        client=new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, null, LogFactory.getLog(PodListParserBenchmark.class));
+        json=PodListGenerator.generate(pods);
+        bytes=json.getBytes(StandardCharsets.UTF_8);
+        try(JsonReader reader=Json.createReader(new StringReader(json))) {
+            statuses=reader.readObject().getJsonArray("items").stream()
+              .map(JsonValue::asJsonObject).map(pod -> pod.getJsonObject("status"))
+              .collect(Collectors.toList());
+        }
+        if(client.parseJsonResult(json, "default", null).size() != pods)
+            throw new IllegalStateException("generated pod list could not be parsed");
+    }
+
+    @Benchmark
+    public PodList parseJsonResult() {
+        return client.parseJsonResult(json, "default", null);
+    }
+
+    @Benchmark
+    public PodList parseJsonStream() throws IOException {
+        return client.parseJsonStream(new ByteArrayInputStream(bytes), "default", null);
+    }
+
+    @Benchmark
+    public void podRunning(Blackhole bh) {
+        for(JsonObject status: statuses)
+            bh.consume(client.podRunning(status));
+    }
+}
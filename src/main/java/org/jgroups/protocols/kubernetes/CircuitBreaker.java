@@ -0,0 +1,191 @@
+package org.jgroups.protocols.kubernetes;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import static org.jgroups.protocols.kubernetes.stream.HttpResponseException.getResponseCode;
+
+/**
+ * Circuit breaker for the requests to the Kubernetes API server. After threshold consecutive failed requests, the
+ * breaker opens and requests fail immediately with an {@link OpenException} instead of waiting for connect or read
+ * timeouts. After openTime ms, the breaker becomes half-open and lets a single request through as a probe: if it
+ * succeeds the breaker closes, otherwise it opens again for another openTime ms.
+ * <p>
+ * Only failures indicating that the API server is unavailable (I/O errors, timeouts, HTTP 5xx, 408 and 429) count;
+ * any other HTTP response shows that the server is reachable and is treated like a success. The result of a request
+ * whose response was received is only known once its body has been read (see {@link #track(InputStream)}), so that
+ * truncated or stalled responses count as failures, too.
+ */
+public class CircuitBreaker {
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    protected final int  threshold;
+    protected final long openTime;  // in ns
+    protected State      state=State.CLOSED; // guarded by this
+    protected int        failures;           // consecutive failures, guarded by this
+    protected long       openedAt;           // time (ns) at which the breaker opened, guarded by this
+
+    /**
+     * @param threshold the number of consecutive failures after which the breaker opens
+     * @param openTime the time (in ms) after which an open breaker lets a probe request through
+     */
+    public CircuitBreaker(int threshold, long openTime) {
+        this.threshold=Math.max(threshold, 1);
+        this.openTime=TimeUnit.MILLISECONDS.toNanos(Math.max(openTime, 0));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Checks if a request can be sent; every successful call must be followed by a call to {@link #onSuccess()},
+     * {@link #onFailure(Throwable)} or (if the request is not sent after all) {@link #cancel()}
+     * @throws OpenException if the breaker is open, or if it is half-open and the probe is still in flight
+     */
+    public synchronized void acquire() throws OpenException {
+        switch(state) {
+            case CLOSED:
+                return;
+            case OPEN:
+                long remaining=openedAt + openTime - System.nanoTime();
+                if(remaining <= 0) {
+                    state=State.HALF_OPEN; // the caller sends the probe
+                    return;
+                }
+                throw new OpenException(String.format("circuit breaker is open after %d failed requests to the Kubernetes API server; next attempt in %d ms",
+                                                      threshold, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            default:
+                throw new OpenException("circuit breaker is half-open; waiting for the result of the probe request to the Kubernetes API server");
+        }
+    }
+
+    public synchronized void onSuccess() {
+        state=State.CLOSED;
+        failures=0;
+    }
+
+    /**
+     * Called instead of onSuccess() or onFailure() when the request let through by {@link #acquire()} is not sent,
+     * e.g. because it is delayed by the rate limiter. If it was the probe, the next request becomes the probe.
+     */
+    public synchronized void cancel() {
+        if(state == State.HALF_OPEN) {
+            state=State.OPEN;
+            openedAt=System.nanoTime() - openTime;
+        }
+    }
+
+    public synchronized void onFailure(Throwable failure) {
+        if(!isUnavailable(failure)) {
+            onSuccess();
+            return;
+        }
+        if(state == State.HALF_OPEN || ++failures >= threshold) {
+            state=State.OPEN;
+            openedAt=System.nanoTime();
+            failures=0;
+        }
+    }
+
+    /**
+     * Returns the body of a response, wrapped so that the result of the request is recorded when the body has been
+     * read: a failure if reading it fails, otherwise a success when the end of the body is reached or the stream is
+     * closed. Until then, a half-open breaker keeps rejecting requests, so callers streaming a body for a long time
+     * (watches) record a success with {@link #onSuccess()} when the response headers have been received.
+     */
+    public InputStream track(InputStream body) {
+        return new FilterInputStream(body) {
+            private boolean done; // guarded by this CircuitBreaker
+
+            @Override
+            public int read() throws IOException {
+                try {
+                    int b=super.read();
+                    if(b < 0)
+                        done(null);
+                    return b;
+                }
+                catch(IOException e) {
+                    done(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    int n=super.read(b, off, len);
+                    if(n < 0)
+                        done(null);
+                    return n;
+                }
+                catch(IOException e) {
+                    done(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                try {
+                    return super.skip(n);
+                }
+                catch(IOException e) {
+                    done(e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    done(null);
+                }
+            }
+
+            // records the first result only: e.g. a read failing because the stream was closed concurrently is ignored
+            private void done(IOException failure) {
+                synchronized(CircuitBreaker.this) {
+                    if(done)
+                        return;
+                    done=true;
+                    if(failure == null)
+                        onSuccess();
+                    else
+                        onFailure(failure);
+                }
+            }
+        };
+    }
+
+    /**
+     * Checks if a failure indicates that the API server is unavailable
+     */
+    protected static boolean isUnavailable(Throwable failure) {
+        int responseCode=getResponseCode(failure);
+        return responseCode < 0 || responseCode >= 500 || responseCode == 408 || responseCode == 429;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s[state=%s, threshold=%d, openTime=%d ms]", getClass().getSimpleName(), state, threshold,
+                             TimeUnit.NANOSECONDS.toMillis(openTime));
+    }
+
+    /**
+     * Thrown instead of sending a request while the breaker is open
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID=-1577612389386427362L;
+
+        public OpenException(String message) {
+            super(message);
+        }
+    }
+}
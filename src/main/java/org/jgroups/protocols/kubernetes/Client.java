@@ -2,38 +2,83 @@ package org.jgroups.protocols.kubernetes;
 
 import jakarta.json.Json;
 import jakarta.json.JsonArray;
+import jakarta.json.JsonException;
 import jakarta.json.JsonObject;
 import jakarta.json.JsonReader;
 import jakarta.json.JsonValue;
 import org.jgroups.logging.Log;
+import org.jgroups.protocols.kubernetes.jfr.ApiRequestEvent;
+import org.jgroups.protocols.kubernetes.jfr.ParseEvent;
+import org.jgroups.protocols.kubernetes.jfr.RetryEvent;
+import org.jgroups.protocols.kubernetes.stream.OpenStream;
 import org.jgroups.protocols.kubernetes.stream.StreamProvider;
 import org.jgroups.protocols.kubernetes.stream.TokenStreamProvider;
+import org.jgroups.util.TimeScheduler;
 import org.jgroups.util.Util;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
 
-import static org.jgroups.protocols.kubernetes.Utils.openStream;
+import static org.jgroups.protocols.kubernetes.Utils.execute;
+import static org.jgroups.protocols.kubernetes.Utils.isRetryable;
+import static org.jgroups.protocols.kubernetes.Utils.retryDelay;
 import static org.jgroups.protocols.kubernetes.Utils.urlencode;
+import static org.jgroups.protocols.kubernetes.stream.HttpResponseException.getResponseCode;
+import static org.jgroups.protocols.kubernetes.stream.HttpResponseException.getRetryAfter;
 
 /**
  * @author <a href="mailto:ales.justin@jboss.org">Ales Justin</a>
  */
 public class Client {
+    protected static final int          HTTP_GONE=410;
+    /** The label of an EndpointSlice which contains the name of the Service the slice belongs to */
+    public static final String          SERVICE_NAME_LABEL="kubernetes.io/service-name";
+    protected static final String       ACCEPT="Accept";
+    protected static final String       PROTOBUF_OR_JSON="application/vnd.kubernetes.protobuf, application/json";
+    protected static final Pattern      WATCH=Pattern.compile("[?&]watch=1(&|$)");
+    /** Set on threads which must not wait for the rate limiter, see {@link #openKubernetesStream(String, String, int)} */
+    protected static final ThreadLocal<Boolean> NON_BLOCKING=ThreadLocal.withInitial(() -> false);
+
     protected final String              masterUrl;
     protected final Map<String, String> headers;
     protected final int                 connectTimeout;
     protected final int                 readTimeout;
     protected final int                 operationAttempts;
     protected final long                operationSleep;
+    protected long                      operationSleepMax;
     protected final StreamProvider      streamProvider;
     protected final String              info;
     protected final Log                 log;
+    protected final PodListParser       parser;
+    protected final EndpointSliceParser endpointSliceParser;
+    protected final ProtobufPodListParser protobufParser;
+    protected int                       pageSize;
+    protected boolean                   listFromCache;
+    protected String                    fieldSelector;
+    protected String                    serviceName;
+    protected boolean                   useProtobuf;
+    protected RateLimiter               rateLimiter;
+    protected CircuitBreaker            circuitBreaker;
+    protected volatile String           lastResourceVersion; // resourceVersion of the last pod list
+    protected volatile long             lastListTime;        // time (ms) at which the last pod list was received
+    protected final Map<String,CompletableFuture<PodList>> fetches=new ConcurrentHashMap<>(); // in-flight getPods() calls
+    protected final LongAdder           coalescedCalls=new LongAdder();
+    protected final ClientStats         stats=new ClientStats();
 
     public Client(String masterUrl, Map<String, String> headers, int connectTimeout, int readTimeout, int operationAttempts,
                   long operationSleep, StreamProvider streamProvider, Log log) {
@@ -43,8 +88,12 @@ public class Client {
         this.readTimeout = readTimeout;
         this.operationAttempts = operationAttempts;
         this.operationSleep = operationSleep;
+        this.operationSleepMax = operationSleep;
         this.streamProvider = streamProvider;
         this.log=log;
+        this.parser=new PodListParser(log);
+        this.endpointSliceParser=new EndpointSliceParser(log);
+        this.protobufParser=new ProtobufPodListParser(log);
         Map<String, String> maskedHeaders=new TreeMap<>();
         if (headers != null) {
             for (Map.Entry<String, String> header : headers.entrySet()) {
@@ -61,22 +110,156 @@ public class Client {
                            operationAttempts, operationSleep, streamProvider);
     }
 
+    public StreamProvider getStreamProvider() {
+        return streamProvider;
+    }
+
+    /** Closes the stream provider; the client must not be used afterwards */
+    public void close() {
+        streamProvider.close();
+    }
+
+    public long getOperationSleepMax() {
+        return operationSleepMax;
+    }
+
+    /**
+     * Sets the maximum time (in ms) slept between attempts. If greater than operationSleep, the time slept after
+     * failed attempt n is a random time between 0 and min(operationSleepMax, operationSleep * 2^(n-1)) (exponential
+     * backoff with full jitter), otherwise it is operationSleep
+     */
+    public Client setOperationSleepMax(long operationSleepMax) {
+        this.operationSleepMax=operationSleepMax;
+        return this;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Sets the rate limiter which every request to the API server has to pass, or null to not limit requests
+     */
+    public Client setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter=rateLimiter;
+        return this;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Sets the circuit breaker which stops requests to the API server after repeated failures, or null
+     */
+    public Client setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker=circuitBreaker;
+        return this;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the maximum number of pods fetched with a single request; pod lists are fetched in pages (using limit
+     * and continue) if greater than 0
+     */
+    public Client setPageSize(int pageSize) {
+        this.pageSize=pageSize;
+        return this;
+    }
+
+    public boolean isListFromCache() {
+        return listFromCache;
+    }
+
+    /**
+     * Lets the API server answer pod lists from its watch cache instead of reading them from etcd. The first list
+     * is sent with resourceVersion=0 (any version), subsequent lists with resourceVersionMatch=NotOlderThan the
+     * resourceVersion of the previous list, so that a list is never older than the one before.
+     */
+    public Client setListFromCache(boolean listFromCache) {
+        this.listFromCache=listFromCache;
+        return this;
+    }
+
+    public String getFieldSelector() {
+        return fieldSelector;
+    }
+
+    /**
+     * Sets the field selector (e.g. "status.phase=Running") used when listing and watching pods, so that pods which
+     * are never pinged are filtered by the API server
+     */
+    public Client setFieldSelector(String fieldSelector) {
+        this.fieldSelector=fieldSelector != null && !fieldSelector.isEmpty()? fieldSelector : null;
+        return this;
+    }
+
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Makes {@link #listPods(String, String, boolean)} list the EndpointSlices (discovery.k8s.io/v1) of the given
+     * Service instead of the pods. EndpointSlices are much smaller than pods, but only contain name, IP address and
+     * readiness of a pod; the labels passed to listPods() are ignored.
+     * @param serviceName the name of a Service selecting the pods, or null to list pods
+     */
+    public Client setServiceName(String serviceName) {
+        this.serviceName=serviceName != null && !serviceName.isEmpty()? serviceName : null;
+        return this;
+    }
+
+    public boolean isUseProtobuf() {
+        return useProtobuf;
+    }
+
+    /**
+     * Asks the API server to send pod lists in the Kubernetes protobuf format, which is smaller and cheaper to
+     * decode than JSON. Responses in JSON are still accepted. Doesn't apply to EndpointSlices and watches.
+     */
+    public Client setUseProtobuf(boolean useProtobuf) {
+        this.useProtobuf=useProtobuf;
+        return this;
+    }
+
+    /**
+     * @return the resourceVersion of the last pod list received from the API server, or null if no list has been
+     * received yet
+     */
+    public String getLastResourceVersion() {
+        return lastResourceVersion;
+    }
+
+    /**
+     * @return the time (in ms since the epoch) at which the last pod list was received, or 0
+     */
+    public long getLastListTime() {
+        return lastListTime;
+    }
+
+    /**
+     * @return the statistics of the requests sent to the API server
+     */
+    public ClientStats getStats() {
+        return stats;
+    }
+
     public String info() {
         return info;
     }
 
     protected String fetchFromKubernetes(String op, String namespace, String labels, boolean dump_requests) throws Exception {
-        String url = masterUrl;
-        if(namespace != null && !namespace.isEmpty())
-            url = url + "/namespaces/" + urlencode(namespace);
-        url = url + "/" + op;
-        if(labels != null && !labels.isEmpty())
-            url = url + "?labelSelector=" + urlencode(labels);
+        return fetchFromKubernetes(buildUrl(op, namespace, labels), dump_requests);
+    }
 
+    protected String fetchFromKubernetes(String url, boolean dump_requests) throws Exception {
         InputStream stream=null;
         String retval=null;
         try {
-            stream=openStream(url, headers, connectTimeout, readTimeout, operationAttempts, operationSleep, streamProvider);
+            stream=openKubernetesStream(url, null, readTimeout);
             retval=Util.readContents(stream);
             if(dump_requests)
                 System.out.printf("--> %s\n<-- %s\n", url, retval);
@@ -93,13 +276,363 @@ public class Client {
         }
     }
 
+    /**
+     * Builds the URL of a request to the Kubernetes API server
+     * @param op the resource, e.g. "pods"
+     * @param namespace the namespace, may be null
+     * @param labels the label selector, may be null
+     * @param params additional query parameters as name/value pairs; pairs with a null value are omitted
+     */
+    protected String buildUrl(String op, String namespace, String labels, String... params) {
+        return buildResourceUrl(masterUrl, op, namespace, labels, params);
+    }
 
+    /**
+     * Same as {@link #buildUrl(String, String, String, String...)}, but for resources which are not in the core API
+     * group
+     * @param baseUrl the URL of the API group, e.g. https://10.0.0.1:443/apis/discovery.k8s.io/v1
+     */
+    protected static String buildResourceUrl(String baseUrl, String op, String namespace, String labels, String... params) {
+        StringBuilder url = new StringBuilder(String.valueOf(baseUrl));
+        if(namespace != null && !namespace.isEmpty())
+            url.append("/namespaces/").append(urlencode(namespace));
+        url.append('/').append(op);
+        char separator='?';
+        if(labels != null && !labels.isEmpty()) {
+            url.append(separator).append("labelSelector=").append(urlencode(labels));
+            separator='&';
+        }
+        for(int i=0; i + 1 < params.length; i+=2) {
+            if(params[i+1] == null)
+                continue;
+            url.append(separator).append(params[i]).append('=').append(urlencode(params[i+1]));
+            separator='&';
+        }
+        return url.toString();
+    }
 
-    public List<Pod> getPods(String namespace, String labels, boolean dump_requests) throws Exception {
-        String result = fetchFromKubernetes("pods", namespace, labels, dump_requests);
-        if(result == null)
-            return Collections.emptyList();
-        return parseJsonResult(result, namespace, labels);
+    /**
+     * Opens a stream to the given URL. This is the only place where requests are sent to the Kubernetes API server.
+     * Failed requests are not retried here: the callers retry the entire operation (e.g. listing all pages of pods).
+     * If a circuit breaker is set and open, the request fails immediately with a {@link CircuitBreaker.OpenException}.
+     * Otherwise, if a rate limiter is set, the request waits until the rate limiter lets it pass; on a thread of
+     * {@link #getPodsAsync(String, String, boolean, TimeScheduler)}, it fails with a
+     * {@link RateLimiter.DelayException} instead, and the fetch is rescheduled. A 429 or 503 response with a
+     * Retry-After header pauses the rate limiter, so that all requests honor it.
+     * @param accept the value of the Accept header, or null to not send one
+     */
+    protected InputStream openKubernetesStream(String url, String accept, int readTimeout) throws Exception {
+        CircuitBreaker breaker=circuitBreaker;
+        if(breaker != null) {
+            try {
+                breaker.acquire();
+            }
+            catch(CircuitBreaker.OpenException e) {
+                stats.requestRejected();
+                throw e;
+            }
+        }
+        RateLimiter limiter=rateLimiter;
+        if(limiter != null) {
+            try {
+                if(NON_BLOCKING.get()) {
+                    long delay=limiter.tryAcquire();
+                    if(delay > 0)
+                        throw new RateLimiter.DelayException(delay);
+                }
+                else
+                    limiter.acquire();
+            }
+            catch(Exception e) { // delayed or interrupted: the request is not sent
+                if(breaker != null)
+                    breaker.cancel();
+                throw e;
+            }
+        }
+        Map<String,String> requestHeaders=headers;
+        if(accept != null) {
+            requestHeaders=headers != null? new HashMap<>(headers) : new HashMap<>();
+            requestHeaders.put(ACCEPT, accept);
+        }
+        ApiRequestEvent event=new ApiRequestEvent();
+        event.begin();
+        long start=System.nanoTime();
+        try {
+            InputStream stream=new OpenStream(streamProvider, url, requestHeaders, connectTimeout, readTimeout).call();
+            long time=System.nanoTime() - start;
+            stats.requestSucceeded(time);
+            if(breaker != null) {
+                // a watch streams its body until it times out, so its headers show that the server is available;
+                // otherwise, the result is recorded when the body has been read
+                if(isWatch(url))
+                    breaker.onSuccess();
+                stream=breaker.track(stream);
+            }
+            return event.track(url, stream, time);
+        }
+        catch(Throwable t) {
+            long time=System.nanoTime() - start;
+            stats.requestFailed(t);
+            if(breaker != null)
+                breaker.onFailure(t);
+            event.failed(url, time, t);
+            int responseCode=getResponseCode(t);
+            if(limiter != null && (responseCode == 429 || responseCode == 503))
+                limiter.pause(getRetryAfter(t));
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the pods in the given namespace matching the given labels. If the same pods are already being fetched
+     * by another thread, the caller waits for that fetch to complete and gets its result (or exception), instead of
+     * sending another request to the API server.
+     * @return the pods, indexed by IP address, pod group and readiness
+     */
+    public PodList getPods(String namespace, String labels, boolean dump_requests) throws Exception {
+        String key=namespace + "?" + labels;
+        CompletableFuture<PodList> fetch=new CompletableFuture<>(), inFlight=fetches.putIfAbsent(key, fetch);
+        if(inFlight != null) {
+            coalescedCalls.increment();
+            try {
+                return inFlight.get();
+            }
+            catch(ExecutionException e) {
+                Throwable cause=e.getCause();
+                throw cause instanceof Exception? (Exception)cause : e;
+            }
+        }
+        try {
+            PodList pods=listPods(namespace, labels, dump_requests);
+            fetch.complete(pods);
+            return pods;
+        }
+        catch(Throwable t) {
+            fetch.completeExceptionally(t);
+            throw t;
+        }
+        finally {
+            fetches.remove(key, fetch);
+        }
+    }
+
+    /**
+     * Non-blocking version of {@link #getPods(String, String, boolean)}: the pods are fetched by a thread of the
+     * given timer, and failed attempts are retried (up to operationAttempts times) by scheduling the next attempt
+     * later (see {@link #setOperationSleepMax(long)}) instead of sleeping. Concurrent fetches of the same pods are coalesced, as with
+     * getPods().
+     * @return a future which completes with the pods, or exceptionally with the failure of the last attempt
+     */
+    public CompletableFuture<PodList> getPodsAsync(String namespace, String labels, boolean dump_requests, TimeScheduler timer) {
+        String key=namespace + "?" + labels;
+        CompletableFuture<PodList> fetch=new CompletableFuture<>(), inFlight=fetches.putIfAbsent(key, fetch);
+        if(inFlight != null)
+            coalescedCalls.increment();
+        else {
+            fetch.whenComplete((pods, t) -> fetches.remove(key, fetch));
+            fetchAsync(fetch, namespace, labels, dump_requests, timer, 1, 0, new Pages());
+        }
+        // a dependent future, so that callers completing it don't affect the fetch shared with other callers
+        return (inFlight != null? inFlight : fetch).thenApply(pods -> pods);
+    }
+
+    /**
+     * Runs (after delay ms) an attempt to fetch the pods on a thread of the timer. An attempt delayed by the rate
+     * limiter is rescheduled, and continues with the pages already fetched.
+     */
+    protected void fetchAsync(CompletableFuture<PodList> fetch, String namespace, String labels, boolean dump_requests,
+                              TimeScheduler timer, int attempt, long delay, Pages pages) {
+        Runnable task=() -> {
+            NON_BLOCKING.set(true); // timer threads must not wait for the rate limiter
+            try {
+                fetch.complete(fetchPods(namespace, labels, dump_requests, pages));
+            }
+            catch(RateLimiter.DelayException e) {
+                long sleep=TimeUnit.NANOSECONDS.toMillis(e.getDelay() + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+                fetchAsync(fetch, namespace, labels, dump_requests, timer, attempt, sleep, pages);
+            }
+            catch(Throwable t) {
+                if(attempt >= operationAttempts || !isRetryable(t))
+                    fetch.completeExceptionally(t);
+                else {
+                    long sleep=retryDelay(t, attempt, operationSleep, operationSleepMax);
+                    log.debug("attempt %d/%d to fetch pods failed, retrying in %d ms: %s", attempt, operationAttempts, sleep, t);
+                    new RetryEvent().retried("fetchPods", attempt, operationAttempts, sleep, t);
+                    fetchAsync(fetch, namespace, labels, dump_requests, timer, attempt + 1, sleep, new Pages());
+                }
+            }
+            finally {
+                NON_BLOCKING.remove();
+            }
+        };
+        try {
+            if(delay > 0)
+                timer.schedule(task, delay, TimeUnit.MILLISECONDS, true);
+            else
+                timer.execute(task, true);
+        }
+        catch(Throwable t) { // e.g. the timer has been stopped
+            fetch.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * @return the number of calls to {@link #getPods(String, String, boolean)} which got the result of a concurrent
+     * fetch instead of sending a request
+     */
+    public long getCoalescedCalls() {
+        return coalescedCalls.sum();
+    }
+
+    public void resetStats() {
+        coalescedCalls.reset();
+        stats.reset();
+    }
+
+    /**
+     * Same as {@link #getPods(String, String, boolean)}, but also returns the resourceVersion of the list. The list
+     * is attempted up to operationAttempts times, with a backoff between attempts (see
+     * {@link #setOperationSleepMax(long)}); failures which can't succeed on retry (e.g. 403 Forbidden) fail fast.
+     */
+    public PodList listPods(String namespace, String labels, boolean dump_requests) throws Exception {
+        return execute(() -> fetchPods(namespace, labels, dump_requests), Math.max(1, operationAttempts), operationSleep,
+                       operationSleepMax, true);
+    }
+
+    /**
+     * Lists the pods (all pages of them, if pageSize is set) once, without retrying
+     */
+    protected PodList fetchPods(String namespace, String labels, boolean dump_requests) throws Exception {
+        return fetchPods(namespace, labels, dump_requests, new Pages());
+    }
+
+    /**
+     * Same as {@link #fetchPods(String, String, boolean)}, but continues a paged list with the pages in pages
+     */
+    protected PodList fetchPods(String namespace, String labels, boolean dump_requests, Pages pages) throws Exception {
+        PodList pods=pageSize > 0? listAllPages(namespace, labels, dump_requests, pages) : listPods(namespace, labels, null, dump_requests);
+        if(pods.getResourceVersion() != null) {
+            lastResourceVersion=pods.getResourceVersion();
+            lastListTime=System.currentTimeMillis();
+        }
+        return pods;
+    }
+
+    protected PodList listAllPages(String namespace, String labels, boolean dump_requests) throws Exception {
+        return listAllPages(namespace, labels, dump_requests, new Pages());
+    }
+
+    /**
+     * Lists all pages of pods, starting after the pages already in pages
+     */
+    protected PodList listAllPages(String namespace, String labels, boolean dump_requests, Pages pages) throws Exception {
+        for(;;) {
+            PodList page;
+            try {
+                page=listPods(namespace, labels, pages.continueToken, dump_requests);
+            }
+            catch(Exception e) {
+                // the continue token expired (410 Gone): the list has to be started from scratch
+                if(pages.continueToken == null || getResponseCode(e) != HTTP_GONE || pages.restarts++ >= operationAttempts)
+                    throw e;
+                log.debug("continue token of pod list expired after %d pods, listing pods again", pages.pods.size());
+                pages.pods.clear();
+                pages.continueToken=null;
+                continue;
+            }
+            if(pages.continueToken == null) // all pages belong to the list of the first page
+                pages.resourceVersion=page.getResourceVersion();
+            pages.pods.addAll(page);
+            if((pages.continueToken=page.getContinue()) == null)
+                return new PodList(pages.pods, pages.resourceVersion);
+        }
+    }
+
+    /**
+     * The progress of a paged list of pods, so that a list delayed by the rate limiter can be continued
+     */
+    protected static class Pages {
+        protected final List<Pod> pods=new ArrayList<>();
+        protected String          resourceVersion, continueToken;
+        protected int             restarts;
+    }
+
+    /**
+     * Fetches a single page of pods
+     * @param continueToken the continue token returned with the previous page, or null to fetch the first page
+     */
+    protected PodList listPods(String namespace, String labels, String continueToken, boolean dump_requests) throws Exception {
+        String resourceVersion=null, resourceVersionMatch=null;
+        if(listFromCache && continueToken == null) { // subsequent pages are served from the same snapshot anyway
+            String last=lastResourceVersion;
+            resourceVersion=last != null? last : "0";
+            resourceVersionMatch=last != null? "NotOlderThan" : null;
+        }
+        String limit=pageSize > 0? String.valueOf(pageSize) : null;
+        if(serviceName != null) {
+            // field selectors on pod fields are not supported for EndpointSlices
+            String url=buildResourceUrl(endpointSlicesUrl(), "endpointslices", namespace, SERVICE_NAME_LABEL + "=" + serviceName,
+                                        "limit", limit, "continue", continueToken,
+                                        "resourceVersion", resourceVersion, "resourceVersionMatch", resourceVersionMatch);
+            try(InputStream stream=dump_requests? dump(url) : openKubernetesStream(url, null, readTimeout)) {
+                return parseEndpointSlices(stream, namespace, serviceName);
+            }
+        }
+        String url=buildUrl("pods", namespace, labels, "fieldSelector", fieldSelector,
+                            "limit", limit, "continue", continueToken,
+                            "resourceVersion", resourceVersion, "resourceVersionMatch", resourceVersionMatch);
+        if(dump_requests) { // the entire response is needed to dump it, so there's no point in streaming it
+            String result = fetchFromKubernetes(url, true);
+            if(result == null)
+                return PodList.EMPTY;
+            return parseJsonResult(result, namespace, labels);
+        }
+        if(useProtobuf) {
+            try(InputStream stream=new BufferedInputStream(openKubernetesStream(url, PROTOBUF_OR_JSON, readTimeout))) {
+                // the API server falls back to JSON if it can't encode the response as protobuf
+                if(ProtobufPodListParser.isProtobuf(stream))
+                    return parseProtobuf(stream, namespace, labels);
+                return parseJsonStream(stream, namespace, labels);
+            }
+        }
+        try(InputStream stream=openKubernetesStream(url, null, readTimeout)) {
+            return parseJsonStream(stream, namespace, labels);
+        }
+    }
+
+    protected InputStream dump(String url) throws Exception {
+        String result=fetchFromKubernetes(url, true);
+        return new ByteArrayInputStream(result != null? result.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+    }
+
+    /**
+     * Returns the URL of the discovery.k8s.io/v1 API group, derived from the URL of the core API group
+     */
+    protected String endpointSlicesUrl() {
+        String base=String.valueOf(masterUrl);
+        int index=base.lastIndexOf("/api/");
+        return (index >= 0? base.substring(0, index) : base) + "/apis/discovery.k8s.io/v1";
+    }
+
+    /**
+     * Checks if url is the URL of a watch (see {@link #watchPods(String, String, String, int)})
+     */
+    protected static boolean isWatch(String url) {
+        return WATCH.matcher(url).find();
+    }
+
+    /**
+     * Opens a watch on the pods matching namespace and labels. The returned stream contains one JSON watch event
+     * per line and is closed by the API server after timeoutSeconds.
+     * @param resourceVersion the resourceVersion to start watching from (exclusive)
+     * @param timeoutSeconds the server-side timeout of the watch
+     */
+    public InputStream watchPods(String namespace, String labels, String resourceVersion, int timeoutSeconds) throws Exception {
+        String url=buildUrl("pods", namespace, labels, "fieldSelector", fieldSelector, "watch", "1", "resourceVersion", resourceVersion,
+                            "allowWatchBookmarks", "true", "timeoutSeconds", String.valueOf(timeoutSeconds));
+        // the server may legitimately stay silent for the whole duration of the watch
+        int watchReadTimeout=(int)Math.min(Integer.MAX_VALUE, readTimeout + TimeUnit.SECONDS.toMillis(timeoutSeconds));
+        return openKubernetesStream(url, null, watchReadTimeout);
     }
 
     /**
@@ -135,49 +668,146 @@ public class Client {
         return group;
     }
 
-    protected List<Pod> parseJsonResult(String input, String namespace, String labels) {
+    protected PodList parseJsonResult(String input, String namespace, String labels) {
         if(input == null)
-            return Collections.emptyList();
+            return PodList.EMPTY;
 
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        event.bytes = input.length();
+        long start = System.nanoTime();
         JsonValue value;
         try (JsonReader reader = Json.createReader(new StringReader(input))) {
             value = reader.read();
         } catch (Exception e) {
             log.error("Failed to parse JSON: %s", e.getMessage());
-            return Collections.emptyList();
+            stats.parseFailed();
+            event.parsed("json", -1);
+            return PodList.EMPTY;
         }
 
         if(!(value instanceof JsonObject)) {
             log.error("JSON is not a map: %s", value);
-            return Collections.emptyList();
+            stats.parseFailed();
+            event.parsed("json", -1);
+            return PodList.EMPTY;
         }
         JsonObject json = value.asJsonObject();
 
         if(!json.containsKey("items")) {
             log.error("JSON object is missing property \"items\": %s", json);
-            return Collections.emptyList();
+            stats.parseFailed();
+            event.parsed("json", -1);
+            return PodList.EMPTY;
         }
 
+        JsonObject listMetadata = json.getJsonObject("metadata");
+        String resourceVersion = listMetadata != null ? listMetadata.getString("resourceVersion", null) : null;
+        String continueToken = listMetadata != null ? listMetadata.getString("continue", null) : null;
         JsonArray items = json.getJsonArray("items");
         List<Pod> pods=new ArrayList<>();
         for(JsonValue item: items) {
-            JsonObject obj = item.asJsonObject();
-            String parentDeployment = getPodGroup(obj);
-            JsonObject metadata = obj.getJsonObject("metadata");
-            String name = metadata != null ? metadata.getString("name", null) : null;
-            JsonObject podStatus = obj.getJsonObject("status");
-            String podIP = podStatus != null ? podStatus.getString("podIP", null) : null;
-            boolean running = podRunning(podStatus);
-            if(podIP == null) {
-                log.trace("Skipping pod %s since its IP is %s", name, podIP);
+            Pod pod = parsePod(item.asJsonObject());
+            if(pod.getIp() == null) {
+                log.trace("Skipping pod %s since its IP is %s", pod.getName(), pod.getIp());
             } else {
-                pods.add(new Pod(name, podIP, parentDeployment, running));
+                pods.add(pod);
             }
         }
+        stats.parsed(System.nanoTime() - start);
+        event.parsed("json", pods.size());
+        log.trace("getPods(%s, %s) = %s", namespace, labels, pods);
+        return new PodList(pods, resourceVersion, continueToken);
+    }
+
+    /**
+     * Parses a PodList directly from the response stream, without reading the response into memory first
+     * @see PodListParser
+     */
+    protected PodList parseJsonStream(InputStream input, String namespace, String labels) throws IOException {
+        ParseEvent event=new ParseEvent();
+        event.begin();
+        long start=System.nanoTime();
+        PodList pods;
+        try {
+            pods=parser.parse(event.track(input));
+        }
+        catch(JsonException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            log.error("Failed to parse JSON: %s", e.getMessage());
+            stats.parseFailed();
+            event.parsed("json-stream", -1);
+            return PodList.EMPTY;
+        }
+        if(pods == null)
+            return PodList.EMPTY;
+        stats.parsed(System.nanoTime() - start);
+        event.parsed("json-stream", pods.size());
+        log.trace("getPods(%s, %s) = %s", namespace, labels, pods);
+        return pods;
+    }
+
+    /**
+     * Decodes a PodList sent by the API server in protobuf format
+     * @see ProtobufPodListParser
+     */
+    protected PodList parseProtobuf(InputStream input, String namespace, String labels) throws IOException {
+        ParseEvent event=new ParseEvent();
+        event.begin();
+        long start=System.nanoTime();
+        PodList pods=protobufParser.parse(event.track(input));
+        if(pods == null)
+            return PodList.EMPTY;
+        stats.parsed(System.nanoTime() - start);
+        event.parsed("protobuf", pods.size());
         log.trace("getPods(%s, %s) = %s", namespace, labels, pods);
         return pods;
     }
 
+    /**
+     * Parses an EndpointSliceList directly from the response stream
+     * @see EndpointSliceParser
+     */
+    protected PodList parseEndpointSlices(InputStream input, String namespace, String serviceName) throws IOException {
+        ParseEvent event=new ParseEvent();
+        event.begin();
+        long start=System.nanoTime();
+        PodList pods;
+        try {
+            pods=endpointSliceParser.parse(event.track(input));
+        }
+        catch(JsonException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            log.error("Failed to parse JSON: %s", e.getMessage());
+            stats.parseFailed();
+            event.parsed("endpointslices", -1);
+            return PodList.EMPTY;
+        }
+        if(pods == null)
+            return PodList.EMPTY;
+        stats.parsed(System.nanoTime() - start);
+        event.parsed("endpointslices", pods.size());
+        log.trace("getEndpoints(%s, %s) = %s", namespace, serviceName, pods);
+        return pods;
+    }
+
+    /**
+     * Creates a {@link Pod} from its JSON representation
+     * @param obj the pod as returned by k8s
+     * @return the pod; its IP is null if the pod has not been assigned an IP address (yet)
+     */
+    protected Pod parsePod(JsonObject obj) {
+        String parentDeployment = getPodGroup(obj);
+        JsonObject metadata = obj.getJsonObject("metadata");
+        String name = metadata != null ? metadata.getString("name", null) : null;
+        JsonObject podStatus = obj.getJsonObject("status");
+        String podIP = podStatus != null ? podStatus.getString("podIP", null) : null;
+        boolean running = podRunning(podStatus);
+        return new Pod(name, podIP, parentDeployment, running);
+    }
+
     /**
      * Helper method to determine if a pod is considered running or not.
      *
@@ -0,0 +1,232 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+import org.jgroups.util.Util;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Statistics of the requests sent by a {@link Client} to the Kubernetes API server: the number of requests, the
+ * failed requests by cause, the time until the response arrived and the time taken to parse pod lists. Percentiles
+ * are computed over the most recent {@link #SAMPLES} times.
+ */
+public class ClientStats {
+    protected static final int SAMPLES=1024;
+
+    protected final LongAdder             requests=new LongAdder();
+    protected final Map<String,LongAdder> failures=new ConcurrentSkipListMap<>(); // cause -> number of failures
+    protected final Times                 requestTimes=new Times(SAMPLES);
+    protected final Times                 parseTimes=new Times(SAMPLES);
+    protected volatile long               lastSuccess; // time (ms since the epoch) of the last successful request
+
+    /**
+     * Records a request which got a successful response
+     * @param time the time (in ns) until the response arrived
+     */
+    public void requestSucceeded(long time) {
+        requests.increment();
+        requestTimes.add(time);
+        lastSuccess=System.currentTimeMillis();
+    }
+
+    /**
+     * Records a request which failed, e.g. with an I/O error or an HTTP error status
+     */
+    public void requestFailed(Throwable failure) {
+        requests.increment();
+        failed(cause(failure));
+    }
+
+    /**
+     * Records a request which was not sent because the circuit breaker is open
+     */
+    public void requestRejected() {
+        failed("circuit-open");
+    }
+
+    /**
+     * Records a response which could not be parsed
+     */
+    public void parseFailed() {
+        failed("parse");
+    }
+
+    /**
+     * Records the time (in ns) taken to parse a pod list; with streaming parsers, this includes reading the response
+     */
+    public void parsed(long time) {
+        parseTimes.add(time);
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getFailures() {
+        return failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * @return the number of failures by cause, e.g. "http-503=2, timeout=1"
+     */
+    public String getFailuresByCause() {
+        return failures.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue().sum())
+          .collect(Collectors.joining(", "));
+    }
+
+    public long getFailures(String cause) {
+        LongAdder count=failures.get(cause);
+        return count != null? count.sum() : 0;
+    }
+
+    public Times getRequestTimes() {
+        return requestTimes;
+    }
+
+    public Times getParseTimes() {
+        return parseTimes;
+    }
+
+    /**
+     * @return the time (in ms since the epoch) of the last successful request, or 0
+     */
+    public long getLastSuccess() {
+        return lastSuccess;
+    }
+
+    public void reset() {
+        requests.reset();
+        failures.clear();
+        requestTimes.clear();
+        parseTimes.clear();
+    }
+
+    protected void failed(String cause) {
+        failures.computeIfAbsent(cause, c -> new LongAdder()).increment();
+    }
+
+    /**
+     * Classifies a failed request: "circuit-open", "http-&lt;status&gt;", "timeout", "connect", "tls", "io", or the
+     * simple class name of the failure
+     */
+    public static String cause(Throwable failure) {
+        int responseCode=HttpResponseException.getResponseCode(failure);
+        if(responseCode > 0)
+            return "http-" + responseCode;
+        for(Throwable t=failure; t != null; t=t.getCause()) {
+            if(t instanceof CircuitBreaker.OpenException)
+                return "circuit-open";
+            if(t instanceof SocketTimeoutException || t instanceof HttpTimeoutException)
+                return "timeout";
+            if(t instanceof ConnectException || t instanceof UnknownHostException || t instanceof NoRouteToHostException)
+                return "connect";
+            if(t instanceof SSLException)
+                return "tls";
+        }
+        for(Throwable t=failure; t != null; t=t.getCause())
+            if(t instanceof IOException)
+                return "io";
+        return failure != null? failure.getClass().getSimpleName() : "unknown";
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, failures=[%s], request times: %s, parse times: %s",
+                             getRequests(), getFailuresByCause(), requestTimes, parseTimes);
+    }
+
+    /**
+     * Min, average and max of all times and the percentiles of the most recent times, in ns
+     */
+    public static class Times {
+        protected final long[] samples; // ring buffer of the most recent times, guarded by this
+        protected long         count, total, min=Long.MAX_VALUE, max;
+
+        public Times(int capacity) {
+            samples=new long[Math.max(capacity, 1)];
+        }
+
+        public synchronized void add(long time) {
+            samples[(int)(count % samples.length)]=time;
+            count++;
+            total+=time;
+            min=Math.min(min, time);
+            max=Math.max(max, time);
+        }
+
+        public synchronized long count() {
+            return count;
+        }
+
+        public synchronized long min() {
+            return count > 0? min : 0;
+        }
+
+        public synchronized long max() {
+            return max;
+        }
+
+        public synchronized double average() {
+            return count > 0? (double)total / count : 0;
+        }
+
+        /**
+         * Returns the given percentile (e.g. 99.9) of the most recent times (nearest rank), or 0 if there are none
+         */
+        public long percentile(double percentile) {
+            return percentile(sorted(), percentile);
+        }
+
+        /**
+         * @return the 50th, 90th, 99th and 99.9th percentile, e.g. "p50=2ms p90=5ms p99=12ms p99.9=15ms"
+         */
+        public String percentiles() {
+            long[] sorted=sorted();
+            if(sorted.length == 0)
+                return "n/a";
+            return Stream.of("50", "90", "99", "99.9")
+              .map(p -> "p" + p + "=" + Util.printTime(percentile(sorted, Double.parseDouble(p)), TimeUnit.NANOSECONDS))
+              .collect(Collectors.joining(" "));
+        }
+
+        public synchronized void clear() {
+            count=total=max=0;
+            min=Long.MAX_VALUE;
+        }
+
+        protected static long percentile(long[] sorted, double percentile) {
+            if(sorted.length == 0)
+                return 0;
+            int rank=(int)Math.ceil(percentile / 100 * sorted.length);
+            return sorted[Math.min(Math.max(rank, 1), sorted.length) - 1];
+        }
+
+        protected synchronized long[] sorted() {
+            long[] sorted=Arrays.copyOf(samples, (int)Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        @Override
+        public String toString() {
+            if(count() == 0)
+                return "n/a";
+            return String.format("min/avg/max=%s/%s/%s %s", Util.printTime(min(), TimeUnit.NANOSECONDS),
+                                 Util.printTime(average(), TimeUnit.NANOSECONDS), Util.printTime(max(), TimeUnit.NANOSECONDS),
+                                 percentiles());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.jgroups.PhysicalAddress;
+import org.jgroups.stack.IpAddress;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The addresses to which discovery requests are sent: ports [port .. port+port_range] of every pod. The targets are
+ * kept across discovery rounds and only recomputed when the pods change. The new targets are then computed by
+ * diffing against the previous pods: the addresses of unchanged pods are reused, only the addresses of new pods are
+ * created (which resolves their IP address). A round with unchanged pods costs O(n) and allocates nothing.
+ * <p>
+ * Every update creates a new immutable {@link Targets} instance, so a round which is still sending to the previous
+ * targets is not affected by an update.
+ */
+public class DiscoveryTargets {
+    protected volatile Targets current=new Targets(Collections.emptyList(), true, 0, 0, Collections.emptyMap());
+
+    /**
+     * Returns the targets for the given pods, reusing the previous targets if neither the pods nor the ports changed
+     * @param pods the pods returned by Kubernetes
+     * @param include_not_ready whether pods which are not ready are targets, too
+     * @param port the bind port of the transport
+     * @param port_range the number of ports above port which are targets, too
+     * @param log called with the pod and the exception if the address of a pod cannot be created
+     */
+    public Targets update(List<Pod> pods, boolean include_not_ready, int port, int port_range, BiConsumer<Pod,Exception> log) {
+        Targets prev=current;
+        if(prev.matches(pods, include_not_ready, port, port_range))
+            return prev;
+        synchronized(this) {
+            if((prev=current).matches(pods, include_not_ready, port, port_range))
+                return prev;
+            boolean same_ports=prev.port == port && prev.port_range == port_range;
+            Map<String,IpAddress[]> addrs=new LinkedHashMap<>(pods.size() * 4 / 3 + 1);
+            for(Pod pod: pods) {
+                if(!pod.isReady() && !include_not_ready)
+                    continue;
+                String ip=pod.getIp();
+                if(ip == null || addrs.containsKey(ip))
+                    continue;
+                IpAddress[] a=same_ports? prev.addresses.get(ip) : null;
+                if(a == null) {
+                    try {
+                        a=new IpAddress[port_range + 1];
+                        for(int i=0; i <= port_range; i++)
+                            a[i]=new IpAddress(ip, port + i);
+                    }
+                    catch(Exception ex) {
+                        log.accept(pod, ex);
+                        continue;
+                    }
+                }
+                addrs.put(ip, a);
+            }
+            return current=new Targets(pods, include_not_ready, port, port_range, addrs);
+        }
+    }
+
+    public Targets get() {
+        return current;
+    }
+
+    /**
+     * An immutable set of targets, computed from a list of pods
+     */
+    public static class Targets {
+        protected final List<Pod>               pods; // the pods from which the targets were computed
+        protected final boolean                 include_not_ready;
+        protected final int                     port, port_range;
+        protected final Map<String,IpAddress[]> addresses; // pod IP -> addresses (one per port), in the order of pods
+        protected final Set<PhysicalAddress>    index;
+
+        protected Targets(List<Pod> pods, boolean include_not_ready, int port, int port_range, Map<String,IpAddress[]> addresses) {
+            this.pods=pods;
+            this.include_not_ready=include_not_ready;
+            this.port=port;
+            this.port_range=port_range;
+            this.addresses=Collections.unmodifiableMap(addresses);
+            Set<PhysicalAddress> idx=new HashSet<>(addresses.size() * (port_range + 1) * 4 / 3 + 1);
+            for(IpAddress[] a: addresses.values())
+                Collections.addAll(idx, a);
+            this.index=Collections.unmodifiableSet(idx);
+        }
+
+        /**
+         * @return the addresses of every pod, keyed by the IP address of the pod
+         */
+        public Map<String,IpAddress[]> addresses() {
+            return addresses;
+        }
+
+        public boolean contains(PhysicalAddress addr) {
+            return index.contains(addr);
+        }
+
+        public int size() {
+            return index.size();
+        }
+
+        protected boolean matches(List<Pod> pods, boolean include_not_ready, int port, int port_range) {
+            if(this.include_not_ready != include_not_ready || this.port != port || this.port_range != port_range)
+                return false;
+            if(this.pods == pods)
+                return true;
+            // Pod.equals() doesn't compare the readiness, which decides whether a pod is a target
+            if(this.pods.size() != pods.size())
+                return false;
+            for(int i=0; i < pods.size(); i++) {
+                Pod a=this.pods.get(i), b=pods.get(i);
+                if(!Objects.equals(a.getIp(), b.getIp()) || a.isReady() != b.isReady())
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return index.toString();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package org.jgroups.protocols.kubernetes;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
+import org.jgroups.logging.Log;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.jgroups.protocols.kubernetes.PodListParser.readListMetadata;
+import static org.jgroups.protocols.kubernetes.PodListParser.skip;
+
+/**
+ * Streaming parser for EndpointSliceList responses (discovery.k8s.io/v1) of the Kubernetes API server. Every
+ * endpoint backed by a pod is mapped to a {@link Pod}:
+ * <ul>
+ *     <li>name: the name of the pod the endpoint refers to (targetRef)</li>
+ *     <li>IP address: the first address of the endpoint; slices with addressType FQDN are ignored</li>
+ *     <li>readiness: the ready condition (an unset condition means ready); terminating endpoints are not ready</li>
+ *     <li>pod group: for pods of a Deployment or DeploymentConfig, the pod name without its random suffix, which
+ *     identifies the ReplicaSet (e.g. infinispan-6569c544b) or deployment (e.g. infinispan-5) of the pod. As
+ *     EndpointSlices don't contain the labels of a pod, the group of any other pod (e.g. of a StatefulSet, whose
+ *     pod names don't change between revisions, a DaemonSet or a bare pod) is unknown (null).</li>
+ * </ul>
+ * A pod can be listed in more than one slice; it is returned only once.
+ */
+public class EndpointSliceParser {
+    /**
+     * Name of a pod of a ReplicaSet ({deployment}-{pod-template-hash}-{suffix}) or a DeploymentConfig
+     * ({deploymentconfig}-{version}-{suffix}): the last but one segment contains a digit
+     */
+    protected static final Pattern GENERATED_POD_NAME=Pattern.compile("(.+-(?=[a-z0-9]*[0-9])[a-z0-9]{1,10})-[a-z0-9]{5}");
+
+    protected final Log log;
+
+    public EndpointSliceParser(Log log) {
+        this.log=log;
+    }
+
+    /**
+     * Parses an EndpointSliceList
+     * @param input the response of the API server
+     * @return the pods of all slices, or null if the response is not an EndpointSliceList
+     * @throws JsonException if the input is not valid JSON, or if reading the input failed
+     */
+    public PodList parse(InputStream input) {
+        try(JsonParser parser=Json.createParser(input)) {
+            if(!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+                log.error("JSON is not a map");
+                return null;
+            }
+            String[] metadata={null, null}; // resourceVersion and continue
+            Map<String,Pod> pods=null;      // keyed by IP address
+            while(parser.next() == Event.KEY_NAME) {
+                String key=parser.getString();
+                Event value=parser.next();
+                if("metadata".equals(key) && value == Event.START_OBJECT)
+                    readListMetadata(parser, metadata);
+                else if("items".equals(key) && value == Event.START_ARRAY)
+                    pods=readItems(parser);
+                else
+                    skip(parser, value);
+            }
+            if(pods == null) {
+                log.error("JSON object is missing property \"items\"");
+                return null;
+            }
+            return new PodList(new ArrayList<>(pods.values()), metadata[0], metadata[1]);
+        }
+    }
+
+    protected Map<String,Pod> readItems(JsonParser parser) {
+        Map<String,Pod> pods=new LinkedHashMap<>();
+        Event event;
+        while((event=parser.next()) != Event.END_ARRAY) {
+            if(event != Event.START_OBJECT) {
+                skip(parser, event);
+                continue;
+            }
+            String addressType=null;
+            List<Pod> endpoints=List.of();
+            while(parser.next() == Event.KEY_NAME) {
+                String key=parser.getString();
+                Event value=parser.next();
+                if("addressType".equals(key) && value == Event.VALUE_STRING)
+                    addressType=parser.getString();
+                else if("endpoints".equals(key) && value == Event.START_ARRAY)
+                    endpoints=readEndpoints(parser);
+                else
+                    skip(parser, value);
+            }
+            if("FQDN".equals(addressType)) {
+                log.trace("Skipping endpoints %s since their address type is %s", endpoints, addressType);
+                continue;
+            }
+            for(Pod pod: endpoints)
+                pods.putIfAbsent(pod.getIp(), pod);
+        }
+        return pods;
+    }
+
+    protected List<Pod> readEndpoints(JsonParser parser) {
+        List<Pod> endpoints=new ArrayList<>();
+        Event event;
+        while((event=parser.next()) != Event.END_ARRAY) {
+            if(event != Event.START_OBJECT) {
+                skip(parser, event);
+                continue;
+            }
+            Pod pod=readEndpoint(parser);
+            if(pod.getIp() == null)
+                log.trace("Skipping endpoint %s since its IP is %s", pod.getName(), pod.getIp());
+            else
+                endpoints.add(pod);
+        }
+        return endpoints;
+    }
+
+    /**
+     * Reads an endpoint; the parser is positioned after the START_OBJECT of the endpoint
+     */
+    protected Pod readEndpoint(JsonParser parser) {
+        String name=null, ip=null;
+        boolean ready=true, terminating=false;
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if("addresses".equals(key) && value == Event.START_ARRAY) {
+                Event address;
+                while((address=parser.next()) != Event.END_ARRAY) {
+                    if(ip == null && address == Event.VALUE_STRING)
+                        ip=parser.getString();
+                    else
+                        skip(parser, address);
+                }
+            }
+            else if("conditions".equals(key) && value == Event.START_OBJECT) {
+                while(parser.next() == Event.KEY_NAME) {
+                    String condition=parser.getString();
+                    Event status=parser.next();
+                    if("ready".equals(condition))
+                        ready=status != Event.VALUE_FALSE;
+                    else if("terminating".equals(condition))
+                        terminating=status == Event.VALUE_TRUE;
+                    skip(parser, status);
+                }
+            }
+            else if("targetRef".equals(key) && value == Event.START_OBJECT) {
+                while(parser.next() == Event.KEY_NAME) {
+                    String field=parser.getString();
+                    Event ref=parser.next();
+                    if("name".equals(field) && ref == Event.VALUE_STRING)
+                        name=parser.getString();
+                    else
+                        skip(parser, ref);
+                }
+            }
+            else
+                skip(parser, value);
+        }
+        String group=podGroup(name);
+        log.debug("pod %s, group %s", name, group);
+        return new Pod(name, ip, group, ready && !terminating);
+    }
+
+    /**
+     * Derives the pod group from a pod name such as infinispan-6569c544b-x2x8f (ReplicaSet infinispan-6569c544b)
+     * @return the group, or null if the name is not the generated name of a pod of a Deployment or DeploymentConfig
+     */
+    protected static String podGroup(String podName) {
+        if(podName == null)
+            return null;
+        Matcher matcher=GENERATED_POD_NAME.matcher(podName);
+        return matcher.matches()? matcher.group(1) : null;
+    }
+}
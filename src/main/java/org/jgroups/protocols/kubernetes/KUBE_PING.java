@@ -3,21 +3,40 @@ package org.jgroups.protocols.kubernetes;
 
 import org.jgroups.*;
 import org.jgroups.annotations.MBean;
+import org.jgroups.annotations.ManagedAttribute;
 import org.jgroups.annotations.ManagedOperation;
 import org.jgroups.annotations.Property;
+import org.jgroups.conf.AttributeType;
 import org.jgroups.conf.ClassConfigurator;
+import org.jgroups.logging.Log;
+import org.jgroups.logging.LogFactory;
 import org.jgroups.protocols.Discovery;
 import org.jgroups.protocols.PingData;
 import org.jgroups.protocols.PingHeader;
+import org.jgroups.protocols.kubernetes.jfr.DiscoveryRoundEvent;
+import org.jgroups.protocols.kubernetes.stream.BaseStreamProvider;
 import org.jgroups.protocols.kubernetes.stream.CertificateStreamProvider;
+import org.jgroups.protocols.kubernetes.stream.HttpClientStreamProvider;
 import org.jgroups.protocols.kubernetes.stream.StreamProvider;
 import org.jgroups.protocols.kubernetes.stream.TokenStreamProvider;
 import org.jgroups.stack.IpAddress;
+import org.jgroups.util.AverageMinMax;
+import org.jgroups.util.ByteArray;
+import org.jgroups.util.DefaultThreadFactory;
 import org.jgroups.util.NameCache;
 import org.jgroups.util.Responses;
+import org.jgroups.util.ThreadCreator;
+import org.jgroups.util.ThreadFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -59,6 +78,12 @@ public class KUBE_PING extends Discovery {
             systemProperty="KUBERNETES_OPERATION_SLEEP")
     protected long   operationSleep=1000;
 
+    @Property(description="Maximum time in milliseconds between operation attempts. The time slept after failed " +
+            "attempt n is a random time between 0 and min(operationSleepMax, operationSleep * 2^(n-1)). " +
+            "If not greater than operationSleep, operationSleep is used between all attempts.",
+            systemProperty="KUBERNETES_OPERATION_SLEEP_MAX")
+    protected long   operationSleepMax=10000;
+
     @Property(description="Scheme (http or https) to be used to connect to the Kubernetes API server.",
             systemProperty="KUBERNETES_MASTER_PROTOCOL")
     protected String  masterProtocol="https";
@@ -119,14 +144,152 @@ public class KUBE_PING extends Discovery {
             systemProperty="KUBERNETES_USE_NOT_READY_ADDRESSES")
     protected boolean useNotReadyAddresses = true;
 
+    @Property(description="Maximum number of pods fetched from the Kubernetes API server with a single request. " +
+            "If greater than 0, pod lists are fetched in pages of this size. 0 fetches all pods with a single request.",
+            systemProperty="KUBERNETES_PAGE_SIZE")
+    protected int     page_size;
+
+    @Property(description="Lets the Kubernetes API server answer pod lists from its watch cache (resourceVersion=0, " +
+            "then resourceVersionMatch=NotOlderThan the previous list) instead of a quorum read from etcd. " +
+            "The returned lists may be slightly stale.",
+            systemProperty="KUBERNETES_LIST_FROM_CACHE")
+    protected boolean list_from_cache;
+
+    @Property(description="Name of a (headless) Service selecting the pods of the cluster. If set, the " +
+            "EndpointSlices of the Service are fetched instead of the pods; they are much smaller, but contain only " +
+            "name, IP address and readiness of a pod. Labels and field selector are not used in this case.",
+            systemProperty="KUBERNETES_SERVICE_NAME")
+    protected String  service_name;
+
+    @Property(description="Field selector used when fetching pods from the Kubernetes API server, e.g. " +
+            "status.phase=Running. If not set, pods without an IP address and pods which have terminated are " +
+            "excluded, and so are pods that are not running if useNotReadyAddresses is false. " +
+            "An empty value disables the field selector.",
+            systemProperty="KUBERNETES_FIELD_SELECTOR")
+    protected String  field_selector;
+
+    @Property(description="Asks the Kubernetes API server to send pod lists in protobuf format, which is smaller " +
+            "and cheaper to decode than JSON. JSON responses are still accepted.",
+            systemProperty="KUBERNETES_USE_PROTOBUF")
+    protected boolean use_protobuf;
+
+    @Property(description="Asks the Kubernetes API server to compress responses with gzip. Compressed responses " +
+            "are decompressed while they are read.",
+            systemProperty="KUBERNETES_USE_GZIP")
+    protected boolean use_gzip=true;
+
+    @Property(description="Uses a single java.net.http.HttpClient for all requests to the Kubernetes API server. " +
+            "Connections are pooled and reused, and HTTP/2 is used if the API server supports it, so that " +
+            "concurrent requests share one connection.",
+            systemProperty="KUBERNETES_USE_HTTP2")
+    protected boolean use_http2;
+
+    @Property(description="Lists the pods once and then keeps a watch open on the Kubernetes API server. Discovery " +
+            "reads the locally maintained pod list instead of listing all pods from the API server on every round.",
+            systemProperty="KUBERNETES_WATCH_PODS")
+    protected boolean watch_pods;
+
+    @Property(description="Time in seconds after which the Kubernetes API server closes a pod watch. The watch is " +
+            "then resumed from the last seen resourceVersion. Only used when watch_pods is true.",
+            systemProperty="KUBERNETES_WATCH_TIMEOUT")
+    protected int     watch_timeout=300;
+
+    @Property(description="Maximum number of requests per second sent to the Kubernetes API server. 0 disables " +
+            "the limit.",
+            systemProperty="KUBERNETES_RATE_LIMIT")
+    protected double  rate_limit=5;
+
+    @Property(description="Number of requests which can be sent to the Kubernetes API server at once, after a " +
+            "period without requests, before rate_limit applies.",
+            systemProperty="KUBERNETES_RATE_LIMIT_BURST")
+    protected int     rate_limit_burst=10;
+
+    @Property(description="Maximum time in milliseconds by which the first request to the Kubernetes API server is " +
+            "delayed. The actual delay is random, so that the first requests of many pods started at the same time " +
+            "are spread over this time window. 0 disables the delay.",
+            systemProperty="KUBERNETES_STARTUP_DELAY")
+    protected long    startup_delay;
+
+    @Property(description="Number of consecutive failed requests to the Kubernetes API server (connect or read " +
+            "timeouts, I/O errors, HTTP 5xx) after which no more requests are sent for circuit_breaker_open_time ms. " +
+            "0 (default) disables the circuit breaker; 5 is a reasonable value to enable it.",
+            systemProperty="KUBERNETES_CIRCUIT_BREAKER_THRESHOLD")
+    protected int     circuit_breaker_threshold;
+
+    @Property(description="Time in milliseconds after which an open circuit breaker lets a single probe request " +
+            "through. If it succeeds the circuit breaker closes, otherwise it stays open for another period.",
+            systemProperty="KUBERNETES_CIRCUIT_BREAKER_OPEN_TIME")
+    protected long    circuit_breaker_open_time=10000;
+
+    @Property(description="Maximum age in milliseconds of the last successfully fetched pods, which are used for " +
+            "discovery when fetching the pods fails because the API server is unavailable (e.g. timeouts, HTTP 5xx or " +
+            "429, or while the circuit breaker is open), but not after other failures (e.g. 403 Forbidden). 0 " +
+            "(default) disables the use of stale pods: no pods are found while fetching them fails.",
+            systemProperty="KUBERNETES_MAX_STALENESS")
+    protected long    max_staleness;
+
+    @Property(description="File to which the pods are written after every successful fetch (e.g. on an emptyDir " +
+            "volume). On startup, the pods in the file are pinged right away, while the pods are fetched from the " +
+            "Kubernetes API server.",
+            systemProperty="KUBERNETES_SNAPSHOT_FILE")
+    protected String  snapshot_file;
+
+    @Property(description="Shares the client, the connection to the Kubernetes API server, the fetched pods (see " +
+            "shared_pods_max_age) and (with watch_pods) the watched pods with all other KUBE_PING protocols in the " +
+            "same JVM which have the same configuration, e.g. fork channels or the channels of an Infinispan cache " +
+            "container.",
+            systemProperty="KUBERNETES_SHARE_CLIENT")
+    protected boolean share_client;
+
+    @Property(description="Maximum age in milliseconds of pods fetched by another KUBE_PING protocol sharing the " +
+            "client (share_client) which are used instead of fetching the pods again. 0 only shares concurrent fetches.",
+            systemProperty="KUBERNETES_SHARED_PODS_MAX_AGE")
+    protected long    shared_pods_max_age=2000;
+
+    @Property(description="Number of discovery requests sent by one task of the timer when " +
+            "async_discovery_use_separate_thread_per_request is true, so that a round to many pods doesn't submit " +
+            "one task per pod and port. 1 submits one task per request.",
+            systemProperty="KUBERNETES_SEND_BATCH_SIZE")
+    protected int     send_batch_size=16;
+
+    @Property(description="Maximum number of discovery requests which are sent concurrently by a dedicated " +
+            "executor, so that a request to a slow or unreachable pod (e.g. a TCP connect with sends_can_block) " +
+            "doesn't delay the requests to the other pods. 0 disables the executor: requests are then sent by the " +
+            "discovery thread, or by the timer if async_discovery_use_separate_thread_per_request is true.",
+            systemProperty="KUBERNETES_SEND_CONCURRENCY")
+    protected int     send_concurrency;
+
+    @Property(description="Uses virtual threads (if available) for the executor of send_concurrency.",
+            systemProperty="KUBERNETES_SEND_ON_VIRTUAL_THREADS")
+    protected boolean send_on_virtual_threads=true;
+
     @Property(description="Dumps all discovery requests and responses to the Kubernetes API server to stdout when true.")
     protected boolean dump_requests;
 
     protected Client  client;
 
+    protected PodWatcher watcher;
+
+    protected SharedClient shared_client; // null if share_client is false
+
     protected int     tp_bind_port;
 
-    private boolean   failedJsonErrorReported = false;
+    protected ExecutorService sender; // sends the discovery requests; null if send_concurrency is 0
+
+    protected final DiscoveryTargets discovery_targets=new DiscoveryTargets(); // kept across discovery rounds
+
+    protected volatile PodList last_pods; // the result of the last successful fetch, null if there was none yet
+
+    protected volatile long last_pods_time; // time (ns) of the last successful fetch
+
+    @ManagedAttribute(description="Number of discovery requests sent per discovery round (min/avg/max)",type=AttributeType.SCALAR)
+    protected final AverageMinMax avg_targets_per_round=new AverageMinMax();
+
+    protected PodSnapshotFile snapshot; // null if snapshot_file is not set
+
+    protected volatile List<Pod> snapshot_pods; // the pods last written to (or read from) the snapshot file
+
+    private volatile boolean failedJsonErrorReported = false;
 
     public boolean isDynamic() {
         return false; // bind_port in the transport needs to be fixed (cannot be 0)
@@ -163,19 +326,164 @@ public class KUBE_PING extends Discovery {
             return; // no further initialization necessary
         }
         log.info("namespace %s set; clustering enabled", namespace);
+        if(clientCertFile != null && masterProtocol == null)
+            masterProtocol="http";
+        String url=String.format("%s://%s:%s/api/%s", masterProtocol, masterHost, masterPort, apiVersion);
+        String selector=field_selector != null? field_selector : defaultFieldSelector();
+        if(share_client) {
+            List<?> key=Arrays.asList(url, namespace, labels, saTokenFile, clientCertFile, clientKeyFile, clientKeyPassword,
+                                      clientKeyAlgo, caCertFile, connectTimeout, readTimeout, operationAttempts,
+                                      operationSleep, operationSleepMax, page_size, list_from_cache, selector, service_name, use_protobuf,
+                                      use_gzip, use_http2, watch_timeout, rate_limit, rate_limit_burst, startup_delay,
+                                      circuit_breaker_threshold, circuit_breaker_open_time);
+            // the shared client outlives this protocol, so it doesn't use its log
+            shared_client=SharedClient.acquire(key, () -> createClient(url, selector, LogFactory.getLog(KUBE_PING.class)));
+            client=shared_client.getClient();
+        }
+        else
+            client=createClient(url, selector, log);
+        if(service_name != null && labels != null)
+            log.warn("labels [%s] are ignored as EndpointSlices of service %s are used for discovery", labels, service_name);
+        if(service_name != null && split_clusters_during_rolling_update)
+            log.warn("split_clusters_during_rolling_update only works for pods of Deployments and DeploymentConfigs when " +
+                       "EndpointSlices of service %s are used for discovery: as they don't contain the labels of a pod, " +
+                       "the pods of a StatefulSet (or other pods) are all placed in the same cluster", service_name);
+        if(snapshot_file != null)
+            readSnapshot();
+        log.debug("KUBE_PING configuration: " + this);
+    }
+
+    /**
+     * Reads the pods of the snapshot file; they are pinged by the first discovery round while the pods are fetched
+     */
+    protected void readSnapshot() {
+        snapshot=new PodSnapshotFile(snapshot_file);
+        try {
+            PodList pods=snapshot.read();
+            if(pods == null)
+                return;
+            long age=Math.max(System.currentTimeMillis() - snapshot.getTime(), 0);
+            log.info("read %d pods from snapshot file %s, taken %d ms ago", pods.size(), snapshot, age);
+            last_pods_time=System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(age);
+            last_pods=pods;
+            snapshot_pods=pods;
+        }
+        catch(Exception e) {
+            log.warn("failed reading pods from snapshot file %s: %s", snapshot, e);
+        }
+    }
+
+    /**
+     * Writes the pods to the snapshot file if they changed since they were last written
+     */
+    protected void writeSnapshot(List<Pod> pods) {
+        PodSnapshotFile file=snapshot;
+        if(file == null || sameSnapshot(pods, snapshot_pods))
+            return;
+        try {
+            file.write(pods, pods instanceof PodList? ((PodList)pods).getResourceVersion() : null);
+            snapshot_pods=pods;
+        }
+        catch(Exception e) {
+            log.warn("failed writing pods to snapshot file %s: %s", file, e);
+        }
+    }
+
+    protected static boolean sameSnapshot(List<Pod> pods, List<Pod> written) {
+        if(pods == written)
+            return true;
+        if(written == null || !pods.equals(written))
+            return false;
+        for(int i=0; i < pods.size(); i++) // Pod.equals() doesn't compare the readiness
+            if(pods.get(i).isReady() != written.get(i).isReady())
+                return false;
+        return true;
+    }
+
+    protected Client createClient(String url, String selector, Log log) throws Exception {
         Map<String,String> headers=new HashMap<>();
         StreamProvider streamProvider;
         if(clientCertFile != null) {
-            if(masterProtocol == null)
-                masterProtocol="http";
-            streamProvider=new CertificateStreamProvider(clientCertFile, clientKeyFile, clientKeyPassword, clientKeyAlgo, caCertFile);
+            streamProvider=use_http2?
+              HttpClientStreamProvider.withClientCertificate(clientCertFile, clientKeyFile, clientKeyPassword, clientKeyAlgo, caCertFile,
+                                                       connectTimeout)
+              : new CertificateStreamProvider(clientCertFile, clientKeyFile, clientKeyPassword, clientKeyAlgo, caCertFile);
         }
         else {
-            streamProvider = new TokenStreamProvider(saTokenFile, caCertFile);
+            streamProvider = use_http2? HttpClientStreamProvider.withToken(saTokenFile, caCertFile, connectTimeout)
+              : new TokenStreamProvider(saTokenFile, caCertFile);
         }
-        String url=String.format("%s://%s:%s/api/%s", masterProtocol, masterHost, masterPort, apiVersion);
-        client=new Client(url, headers, connectTimeout, readTimeout, operationAttempts, operationSleep, streamProvider, log);
-        log.debug("KUBE_PING configuration: " + this);
+        if(streamProvider instanceof BaseStreamProvider)
+            ((BaseStreamProvider)streamProvider).setCompression(use_gzip);
+        return new Client(url, headers, connectTimeout, readTimeout, operationAttempts, operationSleep, streamProvider, log)
+          .setOperationSleepMax(operationSleepMax)
+          // also without a rate limit, so that Retry-After responses pause all requests
+          .setRateLimiter(new RateLimiter(rate_limit, rate_limit_burst, startup_delay))
+          .setCircuitBreaker(circuit_breaker_threshold > 0? new CircuitBreaker(circuit_breaker_threshold, circuit_breaker_open_time) : null)
+          .setPageSize(page_size).setListFromCache(list_from_cache).setFieldSelector(selector)
+          .setServiceName(service_name).setUseProtobuf(use_protobuf);
+    }
+
+    public void start() throws Exception {
+        super.start();
+        if(watch_pods && client != null && client.getServiceName() != null)
+            log.warn("watch_pods is not supported with EndpointSlices (service_name=%s); pods will be listed on every discovery round",
+                     client.getServiceName());
+        else if(watch_pods && shared_client != null && client == shared_client.getClient())
+            watcher=shared_client.startWatcher(() -> new PodWatcher(client, namespace, labels, watch_timeout, operationSleep, client.log)
+                                                 .setMaxRetrySleep(operationSleepMax));
+        else if(watch_pods && client != null) {
+            watcher=new PodWatcher(client, namespace, labels, watch_timeout, operationSleep, log).setMaxRetrySleep(operationSleepMax);
+            watcher.start(transport.getThreadFactory());
+        }
+        if(send_concurrency > 0)
+            sender=createSender(send_concurrency);
+    }
+
+    /**
+     * Creates the executor which sends the discovery requests: a bounded number of threads (virtual threads if
+     * available), which are terminated when idle
+     */
+    protected ExecutorService createSender(int max_threads) {
+        ThreadFactory factory=new DefaultThreadFactory("KUBE_PING-sender", true)
+          .useVirtualThreads(send_on_virtual_threads && ThreadCreator.hasVirtualThreads());
+        ThreadPoolExecutor executor=new ThreadPoolExecutor(max_threads, max_threads, 30, TimeUnit.SECONDS,
+                                                           new LinkedBlockingQueue<>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public void stop() {
+        if(sender != null) {
+            sender.shutdownNow();
+            sender=null;
+        }
+        if(watcher != null) {
+            if(shared_client != null && watcher.client == shared_client.getClient())
+                shared_client.stopWatcher();
+            else
+                watcher.stop();
+            watcher=null;
+        }
+        super.stop();
+    }
+
+    public void destroy() {
+        if(shared_client != null) {
+            shared_client.release();
+            shared_client=null;
+        }
+        else if(client != null)
+            client.close();
+        super.destroy();
+    }
+
+    /**
+     * Returns a field selector which only excludes pods that findMembers() would not ping anyway
+     */
+    protected String defaultFieldSelector() {
+        return useNotReadyAddresses? "status.phase!=Succeeded,status.phase!=Failed,status.podIP!="
+          : "status.phase=Running,status.podIP!=";
     }
 
     private void checkDeprecatedProperties() {
@@ -203,8 +511,62 @@ public class KUBE_PING extends Discovery {
     }
 
     public void findMembers(List<Address> members, boolean initial_discovery, Responses responses) {
-        List<Pod>             hosts=readAll();
-        List<PhysicalAddress> cluster_members=new ArrayList<>(hosts != null? hosts.size() : 16);
+        DiscoveryRoundEvent event=new DiscoveryRoundEvent();
+        event.begin();
+        long start=System.nanoTime();
+        CompletableFuture<PodList> fetch=readAllAsync();
+        PodList known=last_pods;
+        if(known == null || fetch.isDone()) { // no pods known yet (or the fetch is already done): wait for the fetch
+            PodList pods=fetch.join();
+            long fetch_time=System.nanoTime() - start;
+            int num_sent=sendDiscoveryRequests(members, initial_discovery, pods, Collections.emptySet(), null);
+            endRound(event, initial_discovery, pods, num_sent, fetch_time, false);
+            return;
+        }
+        // ping the pods of the previous fetch now, and the pods which were added since when the fetch completes
+        log.debug("%s: pods are still being fetched from Kubernetes; sending discovery requests to the %d pods known so far",
+                  local_addr, known.size());
+        Set<PhysicalAddress> sent=new HashSet<>();
+        int num_sent=sendDiscoveryRequests(members, initial_discovery, known, Collections.emptySet(), sent);
+        // not on the thread completing the fetch (a timer thread), which a blocking send would stall
+        ExecutorService executor=sender;
+        Executor late_sender=executor != null? executor : transport.getThreadPool()::execute;
+        fetch.thenAcceptAsync(pods -> {
+            long fetch_time=System.nanoTime() - start;
+            int num_new=pods != known? sendDiscoveryRequests(members, initial_discovery, pods, sent, null) : 0;
+            endRound(event, initial_discovery, pods, num_sent + num_new, fetch_time, true);
+        }, late_sender);
+    }
+
+    /**
+     * Records the number of discovery requests sent by a round, and commits its event if flight recording is enabled
+     */
+    protected void endRound(DiscoveryRoundEvent event, boolean initial_discovery, PodList pods, int targets,
+                            long fetch_time, boolean pinged_known_pods) {
+        synchronized(avg_targets_per_round) {
+            avg_targets_per_round.add(targets);
+        }
+        event.end();
+        if(!event.shouldCommit())
+            return;
+        event.cluster=cluster_name;
+        event.initialDiscovery=initial_discovery;
+        event.pods=pods.size();
+        event.readyPods=pods.getReadyPods().size();
+        event.targets=targets;
+        event.fetchTime=fetch_time;
+        event.pingedKnownPods=pinged_known_pods;
+        event.commit();
+    }
+
+    /**
+     * Sends discovery requests to the given pods
+     * @param exclude addresses to which a request has already been sent
+     * @param sent if not null, the addresses to which requests have been sent are added to it
+     * @return the number of discovery requests sent
+     */
+    protected int sendDiscoveryRequests(List<Address> members, boolean initial_discovery, PodList hosts,
+                                         Set<PhysicalAddress> exclude, Set<PhysicalAddress> sent) {
         PhysicalAddress       physical_addr=null;
         PingData              data=null;
 
@@ -214,58 +576,24 @@ public class KUBE_PING extends Discovery {
         if(members != null && members.size() <= max_members_in_discovery_request)
             data.mbrs(members);
 
-        if(hosts != null) {
-            if(log.isTraceEnabled())
-                log.trace("%s: hosts fetched from Kubernetes: %s", local_addr, hosts);
-            for(Pod host: hosts) {
-                if (!host.isReady() && !useNotReadyAddresses)
-                    continue;
-                for(int i=0; i <= port_range; i++) {
-                    try {
-                        IpAddress addr=new IpAddress(host.getIp(), tp_bind_port + i);
-                        if(!cluster_members.contains(addr))
-                            cluster_members.add(addr);
-                    }
-                    catch(Exception ex) {
-                        log.warn("failed translating host %s into InetAddress: %s", host, ex);
-                    }
-                }
-            }
-        }
-
-        if(use_disk_cache) {
-            // this only makes sense if we have PDC below us
-            Collection<PhysicalAddress> list=(Collection<PhysicalAddress>)down_prot.down(new Event(Event.GET_PHYSICAL_ADDRESSES));
-            if(list != null)
-                list.stream().filter(phys_addr -> !cluster_members.contains(phys_addr)).forEach(cluster_members::add);
-        }
+        if(hosts == null)
+            hosts=PodList.EMPTY;
+        if(log.isTraceEnabled())
+            log.trace("%s: hosts fetched from Kubernetes: %s", local_addr, hosts);
+        DiscoveryTargets.Targets targets=discovery_targets.update(hosts, useNotReadyAddresses, tp_bind_port, port_range,
+          (host, ex) -> log.warn("failed translating host %s into InetAddress: %s", host, ex));
 
+        String senderPodGroup=null; // null: all pods are allowed
         if (split_clusters_during_rolling_update) {
             if(physical_addr != null) {
-                String senderIp = physical_addr.getIpAddress().getHostAddress();
                 // Please note we search for sender parent group through all pods, ever not ready. It's because JGroup discovery is performed
                 // before WildFly can respond to http readiness probe.
-                hosts.stream()
-                        .filter(p -> p.getPodGroup() == null)
-                        .forEach(p -> log.warn("Pod %s doesn't have group assigned. Impossible to reliably determine pod group during Rolling Update."));
-
-                String senderPodGroup = hosts.stream()
-                      .filter(pod -> senderIp.contains(pod.getIp()))
-                      .map(Pod::getPodGroup)
-                      .findFirst().orElse(null);
-                if(senderPodGroup != null) {
-                    Set<String> allowedAddresses = hosts.stream()
-                          .filter(pod -> senderPodGroup.equals(pod.getPodGroup()))
-                          .map(Pod::getIp)
-                          .collect(Collectors.toSet());
-                    for(Iterator<PhysicalAddress> memberIterator = cluster_members.iterator(); memberIterator.hasNext();) {
-                        IpAddress podAddress = (IpAddress) memberIterator.next();
-                        if(!allowedAddresses.contains(podAddress.getIpAddress().getHostAddress())) {
-                            log.trace("removing pod %s from cluster members list since its parent domain is different than senders (%s). Allowed hosts: %s", podAddress, senderPodGroup, allowedAddresses);
-                            memberIterator.remove();
-                        }
-                    }
-                } else {
+                for(Pod p: hosts.getPodsInGroup(null))
+                    log.warn("Pod %s doesn't have group assigned. Impossible to reliably determine pod group during Rolling Update.", p);
+
+                Pod sender=hosts.getPod(physical_addr.getIpAddress());
+                senderPodGroup=sender != null? sender.getPodGroup() : null;
+                if(senderPodGroup == null) {
                     log.warn("split_clusters_during_rolling_update is set to 'true' but can't obtain local node parent deployment. All nodes will be placed in the same cluster.");
                 }
             } else {
@@ -274,24 +602,193 @@ public class KUBE_PING extends Discovery {
         }
 
         if(log.isTraceEnabled())
-            log.trace("%s: sending discovery requests to %s", local_addr, cluster_members);
+            log.trace("%s: sending discovery requests to %s", local_addr, targets);
+        // the payload and the header are the same for all requests of a round, and are not modified when sent
         PingHeader hdr=new PingHeader(PingHeader.GET_MBRS_REQ).clusterName(cluster_name).initialDiscovery(initial_discovery);
-        for(final PhysicalAddress addr: cluster_members) {
-            if(addr.equals(physical_addr)) // no need to send the request to myself
+        ByteArray payload=marshal(data);
+        List<Message> requests=new ArrayList<>(targets.size());
+        for(Map.Entry<String,IpAddress[]> entry: targets.addresses().entrySet()) {
+            if(senderPodGroup != null && !inGroup(hosts.getPod(entry.getKey()), senderPodGroup)) {
+                log.trace("removing pod %s from cluster members list since its parent domain is different than senders (%s)",
+                          entry.getKey(), senderPodGroup);
                 continue;
+            }
+            for(IpAddress addr: entry.getValue())
+                addDiscoveryRequest(requests, addr, physical_addr, payload, hdr, exclude, sent);
+        }
+
+        if(use_disk_cache) {
+            // this only makes sense if we have PDC below us
+            Collection<PhysicalAddress> list=(Collection<PhysicalAddress>)down_prot.down(new Event(Event.GET_PHYSICAL_ADDRESSES));
+            if(list != null) {
+                for(PhysicalAddress addr: list) {
+                    if(targets.contains(addr)) // already sent (or removed by split_clusters_during_rolling_update)
+                        continue;
+                    if(senderPodGroup != null && (!(addr instanceof IpAddress)
+                      || !inGroup(hosts.getPod(((IpAddress)addr).getIpAddress()), senderPodGroup)))
+                        continue;
+                    addDiscoveryRequest(requests, addr, physical_addr, payload, hdr, exclude, sent);
+                }
+            }
+        }
+        sendDiscoveryRequests(requests);
+        return requests.size();
+    }
+
+    protected static boolean inGroup(Pod pod, String group) {
+        return pod != null && group.equals(pod.getPodGroup());
+    }
 
-            // the message needs to be DONT_BUNDLE, see explanation above
-            final Message msg=new BytesMessage(addr).setFlag(Message.Flag.DONT_BUNDLE, Message.Flag.OOB)
-              .putHeader(this.id,hdr);
-            if(data != null)
-                msg.setArray(marshal(data));
+    protected void addDiscoveryRequest(List<Message> requests, PhysicalAddress addr, PhysicalAddress physical_addr,
+                                       ByteArray payload, PingHeader hdr, Set<PhysicalAddress> exclude, Set<PhysicalAddress> sent) {
+        if(addr.equals(physical_addr) || exclude.contains(addr)) // no need to send the request to myself
+            return;
+        if(sent != null)
+            sent.add(addr);
 
-            if(async_discovery_use_separate_thread_per_request)
-                timer.execute(() -> sendDiscoveryRequest(msg), sends_can_block);
-            else
-                sendDiscoveryRequest(msg);
+        // the message needs to be DONT_BUNDLE, see explanation above
+        requests.add(new BytesMessage(addr).setFlag(Message.Flag.DONT_BUNDLE, Message.Flag.OOB)
+                       .putHeader(this.id,hdr).setArray(payload));
+    }
+
+    /**
+     * Sends the discovery requests of a round. With send_concurrency, every request is sent by the executor; with
+     * async_discovery_use_separate_thread_per_request, the requests are sent by timer tasks, each of which sends
+     * send_batch_size requests
+     */
+    protected void sendDiscoveryRequests(List<Message> requests) {
+        ExecutorService executor=sender;
+        if(executor != null) {
+            try {
+                for(Message req: requests)
+                    executor.execute(() -> sendDiscoveryRequest(req));
+            }
+            catch(RejectedExecutionException stopped) {
+                log.trace("%s: not sending discovery requests as the protocol has been stopped", local_addr);
+            }
+            return;
+        }
+        if(!async_discovery_use_separate_thread_per_request) {
+            for(Message req: requests)
+                sendDiscoveryRequest(req);
+            return;
+        }
+        int batch_size=Math.max(1, send_batch_size);
+        for(int i=0; i < requests.size(); i+=batch_size) {
+            List<Message> batch=requests.subList(i, Math.min(i + batch_size, requests.size()));
+            timer.execute(() -> batch.forEach(this::sendDiscoveryRequest), sends_can_block);
+        }
+    }
+
+    @ManagedAttribute(description="The resourceVersion of the last pod list received from the Kubernetes API server")
+    public String getLastResourceVersion() {
+        PodWatcher w=watcher;
+        if(w != null && w.isSynced())
+            return w.getResourceVersion();
+        return client != null? client.getLastResourceVersion() : null;
+    }
+
+    @ManagedAttribute(description="Time in ms since the last pod list was received from the Kubernetes API server, " +
+      "or -1 if no list has been received yet")
+    public long getTimeSinceLastList() {
+        long last=client != null? client.getLastListTime() : 0;
+        return last > 0? System.currentTimeMillis() - last : -1;
+    }
+
+    @ManagedAttribute(description="Number of response bytes received from the Kubernetes API server (compressed if " +
+      "the server compressed the response)")
+    public long getBytesReceived() {
+        BaseStreamProvider provider=baseStreamProvider();
+        return provider != null? provider.getBytesReceived() : 0;
+    }
+
+    @ManagedAttribute(description="Number of response bytes received from the Kubernetes API server after decompression")
+    public long getBytesDecoded() {
+        BaseStreamProvider provider=baseStreamProvider();
+        return provider != null? provider.getBytesDecoded() : 0;
+    }
+
+    @ManagedAttribute(description="Number of pod fetches which got the result of a concurrent fetch instead of " +
+      "sending a request to the Kubernetes API server")
+    public long getCoalescedFetches() {
+        return client != null? client.getCoalescedCalls() : 0;
+    }
+
+    @ManagedAttribute(description="State of the circuit breaker of requests to the Kubernetes API server " +
+      "(CLOSED, OPEN or HALF_OPEN), or null if there is no circuit breaker")
+    public String getCircuitBreakerState() {
+        CircuitBreaker breaker=client != null? client.getCircuitBreaker() : null;
+        return breaker != null? breaker.getState().toString() : null;
+    }
+
+    @ManagedAttribute(description="Number of requests sent to the Kubernetes API server")
+    public long getApiRequests() {
+        return client != null? client.getStats().getRequests() : 0;
+    }
+
+    @ManagedAttribute(description="Number of failed requests to the Kubernetes API server, including requests " +
+      "rejected by the circuit breaker and responses which could not be parsed")
+    public long getApiFailures() {
+        return client != null? client.getStats().getFailures() : 0;
+    }
+
+    @ManagedAttribute(description="Number of failed requests to the Kubernetes API server by cause, e.g. " +
+      "\"http-503=2, timeout=1\" (causes: http-<status>, timeout, connect, tls, io, circuit-open, parse)")
+    public String getApiFailuresByCause() {
+        return client != null? client.getStats().getFailuresByCause() : null;
+    }
+
+    @ManagedAttribute(description="Time until the Kubernetes API server responded (min/avg/max and percentiles of " +
+      "the most recent requests)")
+    public String getApiRequestTime() {
+        return client != null? client.getStats().getRequestTimes().toString() : null;
+    }
+
+    @ManagedAttribute(description="Time taken to parse a list of pods, including reading a streamed response " +
+      "(min/avg/max and percentiles of the most recent lists)")
+    public String getParseTime() {
+        return client != null? client.getStats().getParseTimes().toString() : null;
+    }
+
+    @ManagedAttribute(description="Number of pods returned by the last successful fetch")
+    public int getPodCount() {
+        PodList pods=last_pods;
+        return pods != null? pods.size() : 0;
+    }
+
+    @ManagedAttribute(description="Number of ready pods returned by the last successful fetch")
+    public int getReadyPodCount() {
+        PodList pods=last_pods;
+        return pods != null? pods.getReadyPods().size() : 0;
+    }
+
+    @ManagedAttribute(description="Number of pods returned by the last successful fetch which are not ready")
+    public int getNotReadyPodCount() {
+        return getPodCount() - getReadyPodCount();
+    }
+
+    @ManagedAttribute(description="Time in ms since the pods were last fetched successfully (from the Kubernetes API " +
+      "server, the pod watcher or the snapshot file), or -1 if they haven't been fetched yet",type=AttributeType.TIME)
+    public long getTimeSinceLastFetch() {
+        return last_pods != null? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - last_pods_time) : -1;
+    }
+
+    @Override
+    public void resetStats() {
+        super.resetStats();
+        synchronized(avg_targets_per_round) {
+            avg_targets_per_round.clear();
         }
+        if(client != null)
+            client.resetStats();
+        BaseStreamProvider provider=baseStreamProvider();
+        if(provider != null)
+            provider.resetStats();
+    }
 
+    protected BaseStreamProvider baseStreamProvider() {
+        StreamProvider provider=client != null? client.getStreamProvider() : null;
+        return provider instanceof BaseStreamProvider? (BaseStreamProvider)provider : null;
     }
 
     @ManagedOperation(description="Asks Kubernetes for the IP addresses of all pods")
@@ -301,22 +798,59 @@ public class KUBE_PING extends Discovery {
     }
 
 
-    protected List<Pod> readAll() {
-        if(isClusteringEnabled() && client != null) {
-            try {
-                List<Pod> pods = client.getPods(namespace, labels, dump_requests);
+    protected PodList readAll() {
+        return readAllAsync().join();
+    }
+
+    /**
+     * Fetches the pods without blocking the caller
+     * @return a future which completes with the pods, or with an empty list if the pods could not be fetched; it
+     * never completes exceptionally
+     */
+    protected CompletableFuture<PodList> readAllAsync() {
+        PodWatcher w=watcher;
+        if(w != null && w.isSynced()) {
+            PodList pods=w.getPods();
+            last_pods_time=System.nanoTime();
+            last_pods=pods;
+            writeSnapshot(pods);
+            return CompletableFuture.completedFuture(pods);
+        }
+        if(!isClusteringEnabled() || client == null)
+            return CompletableFuture.completedFuture(PodList.EMPTY);
+        CompletableFuture<PodList> fetch=shared_client != null && client == shared_client.getClient()?
+          shared_client.getPodsAsync(namespace, labels, dump_requests, timer, shared_pods_max_age)
+          : client.getPodsAsync(namespace, labels, dump_requests, timer);
+        return fetch.handle((pods, t) -> {
+            if(t == null) {
                 failedJsonErrorReported = false;
+                last_pods_time=System.nanoTime();
+                last_pods=pods;
+                writeSnapshot(pods);
                 return pods;
             }
-            catch(Exception e) {
-                if (!failedJsonErrorReported) {
-                    failedJsonErrorReported = true;
-                    log.warn("failed getting JSON response from Kubernetes %s for cluster [%s], namespace [%s], labels [%s]; encountered [%s: %s]",
-                            client.info(), cluster_name, namespace, labels, e.getClass().getName(), e.getMessage());
-                }
+            Throwable e=t instanceof CompletionException && t.getCause() != null? t.getCause() : t;
+            if (!failedJsonErrorReported) {
+                failedJsonErrorReported = true;
+                log.warn("failed getting JSON response from Kubernetes %s for cluster [%s], namespace [%s], labels [%s]; encountered [%s: %s]",
+                        client.info(), cluster_name, namespace, labels, e.getClass().getName(), e.getMessage());
             }
-        }
-        return Collections.emptyList();
+            // stale pods only bridge an unavailable API server; e.g. after a 403 or 404 they would be pinged forever
+            return Utils.isRetryable(e) || CircuitBreaker.isUnavailable(e)? stalePods() : PodList.EMPTY;
+        });
+    }
+
+    /**
+     * Returns the last successfully fetched pods if they are not older than max_staleness, or an empty list. Used when
+     * fetching the pods failed with a retryable error or because the API server is unavailable.
+     */
+    protected PodList stalePods() {
+        PodList pods=last_pods;
+        if(pods == null || max_staleness <= 0 || System.nanoTime() - last_pods_time > TimeUnit.MILLISECONDS.toNanos(max_staleness))
+            return PodList.EMPTY;
+        log.debug("%s: using the %d pods fetched %d ms ago", local_addr, pods.size(),
+                  TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - last_pods_time));
+        return pods;
     }
 
     protected void sendDiscoveryRequest(Message req) {
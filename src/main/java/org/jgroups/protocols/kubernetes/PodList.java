@@ -0,0 +1,140 @@
+package org.jgroups.protocols.kubernetes;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of pods as returned by the Kubernetes API server, together with the resourceVersion of the list.
+ * The resourceVersion can be used to start a watch from the point in time the list was taken.
+ * <p>
+ * The pods are also indexed by IP address, by pod group and by readiness, so that discovery can look them up
+ * without scanning the list. The index is built once, on first use.
+ */
+public class PodList extends AbstractList<Pod> implements RandomAccess {
+    public static final PodList EMPTY=new PodList(Collections.emptyList(), null);
+
+    private final List<Pod> pods;
+    private final String    resourceVersion;
+    private final String    continueToken;
+    private volatile Index  index; // built on first use
+
+    public PodList(List<Pod> pods, String resourceVersion) {
+        this(pods, resourceVersion, null);
+    }
+
+    public PodList(List<Pod> pods, String resourceVersion, String continueToken) {
+        this.pods=Collections.unmodifiableList(pods);
+        this.resourceVersion=resourceVersion;
+        this.continueToken=continueToken != null && !continueToken.isEmpty()? continueToken : null;
+    }
+
+    /**
+     * @return the resourceVersion of the list, or null if the API server didn't return one
+     */
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    /**
+     * @return the token to fetch the next page of a paginated list, or null if this is the last (or only) page
+     */
+    public String getContinue() {
+        return continueToken;
+    }
+
+    /**
+     * @return the pod with the given IP address, or null if there is none
+     */
+    public Pod getPod(String ip) {
+        return index().by_ip.get(ip);
+    }
+
+    /**
+     * @return the pod with the given IP address, or null if there is none. Unlike {@link #getPod(String)}, IPv6
+     * addresses match regardless of their textual representation
+     */
+    public Pod getPod(InetAddress addr) {
+        return getPod(addr.getHostAddress());
+    }
+
+    /**
+     * @return the pods of the given pod group (the pods without a group if group is null), or an empty list
+     */
+    public List<Pod> getPodsInGroup(String group) {
+        return index().by_group.getOrDefault(group, Collections.emptyList());
+    }
+
+    /**
+     * @return the pods which are ready
+     */
+    public List<Pod> getReadyPods() {
+        return index().ready;
+    }
+
+    protected Index index() {
+        Index idx=index;
+        if(idx == null)
+            index=idx=new Index(pods); // concurrent callers may build the (same) index twice
+        return idx;
+    }
+
+    @Override
+    public Pod get(int index) {
+        return pods.get(index);
+    }
+
+    @Override
+    public int size() {
+        return pods.size();
+    }
+
+    protected static class Index {
+        protected final Map<String,Pod>       by_ip;
+        protected final Map<String,List<Pod>> by_group;
+        protected final List<Pod>             ready;
+
+        protected Index(List<Pod> pods) {
+            Map<String,Pod> ips=new HashMap<>(pods.size() * 4 / 3 + 1);
+            Map<String,List<Pod>> groups=new HashMap<>();
+            List<Pod> ready_pods=new ArrayList<>(pods.size());
+            for(Pod pod: pods) {
+                if(pod.getIp() != null) {
+                    ips.putIfAbsent(pod.getIp(), pod);
+                    String normalized=normalize(pod.getIp());
+                    if(normalized != null)
+                        ips.putIfAbsent(normalized, pod);
+                }
+                groups.computeIfAbsent(pod.getPodGroup(), g -> new ArrayList<>()).add(pod);
+                if(pod.isReady())
+                    ready_pods.add(pod);
+            }
+            groups.replaceAll((g, l) -> Collections.unmodifiableList(l));
+            by_ip=ips;
+            by_group=groups;
+            ready=Collections.unmodifiableList(ready_pods);
+        }
+
+        /**
+         * Kubernetes uses the compressed form of IPv6 addresses (fd00::1), {@link InetAddress#getHostAddress()}
+         * doesn't (fd00:0:0:0:0:0:0:1): returns the latter for an IPv6 address, or null if ip is not an IPv6 address
+         */
+        protected static String normalize(String ip) {
+            if(ip.indexOf(':') < 0)
+                return null;
+            try {
+                InetAddress addr=InetAddress.getByName(ip);
+                return addr instanceof Inet6Address? addr.getHostAddress() : null;
+            }
+            catch(Exception ignored) {
+                return null;
+            }
+        }
+    }
+}
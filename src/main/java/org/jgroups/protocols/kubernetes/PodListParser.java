@@ -0,0 +1,230 @@
+package org.jgroups.protocols.kubernetes;
+
+import jakarta.json.Json;
+import jakarta.json.JsonException;
+import jakarta.json.stream.JsonParser;
+import jakarta.json.stream.JsonParser.Event;
+import org.jgroups.logging.Log;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming parser for PodList responses of the Kubernetes API server. Reads the response directly from the
+ * {@link InputStream} and creates a {@link Pod} per item as soon as the item has been read; subtrees that are not
+ * needed (spec, managedFields, container details etc) are skipped without being materialized.
+ * <p>
+ * The result is the same as that of {@link Client#parseJsonResult(String, String, String)}: the pod group is
+ * determined as in {@link Client#getPodGroup(jakarta.json.JsonObject)} and readiness as in
+ * {@link Client#podRunning(jakarta.json.JsonObject)}.
+ */
+public class PodListParser {
+    protected final Log log;
+
+    public PodListParser(Log log) {
+        this.log=log;
+    }
+
+    /**
+     * Parses a PodList
+     * @param input the response of the API server
+     * @return the list of pods which have an IP address, or null if the response is not a PodList
+     * @throws JsonException if the input is not valid JSON, or if reading the input failed
+     */
+    public PodList parse(InputStream input) {
+        try(JsonParser parser=Json.createParser(input)) {
+            if(!parser.hasNext() || parser.next() != Event.START_OBJECT) {
+                log.error("JSON is not a map");
+                return null;
+            }
+            String[] metadata={null, null}; // resourceVersion and continue
+            List<Pod> pods=null;
+            while(parser.next() == Event.KEY_NAME) {
+                String key=parser.getString();
+                Event value=parser.next();
+                if("metadata".equals(key) && value == Event.START_OBJECT)
+                    readListMetadata(parser, metadata);
+                else if("items".equals(key) && value == Event.START_ARRAY)
+                    pods=readItems(parser);
+                else
+                    skip(parser, value);
+            }
+            if(pods == null) {
+                log.error("JSON object is missing property \"items\"");
+                return null;
+            }
+            return new PodList(pods, metadata[0], metadata[1]);
+        }
+    }
+
+    protected static void readListMetadata(JsonParser parser, String[] metadata) {
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if("resourceVersion".equals(key) && value == Event.VALUE_STRING)
+                metadata[0]=parser.getString();
+            else if("continue".equals(key) && value == Event.VALUE_STRING)
+                metadata[1]=parser.getString();
+            else
+                skip(parser, value);
+        }
+    }
+
+    protected List<Pod> readItems(JsonParser parser) {
+        List<Pod> pods=new ArrayList<>();
+        Event event;
+        while((event=parser.next()) != Event.END_ARRAY) {
+            if(event != Event.START_OBJECT) {
+                skip(parser, event);
+                continue;
+            }
+            Pod pod=readPod(parser);
+            if(pod.getIp() == null)
+                log.trace("Skipping pod %s since its IP is %s", pod.getName(), pod.getIp());
+            else
+                pods.add(pod);
+        }
+        return pods;
+    }
+
+    /**
+     * Reads a pod; the parser is positioned after the START_OBJECT of the pod
+     */
+    protected Pod readPod(JsonParser parser) {
+        PodFields fields=new PodFields();
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if("metadata".equals(key) && value == Event.START_OBJECT)
+                readPodMetadata(parser, fields);
+            else if("status".equals(key) && value == Event.START_OBJECT)
+                readPodStatus(parser, fields);
+            else
+                skip(parser, value);
+        }
+        String group=fields.podTemplateHash;
+        if(group == null)
+            group=fields.deployment;
+        if(group == null)
+            group=fields.controllerRevisionHash;
+        log.debug("pod %s, group %s", fields.name, group);
+        return new Pod(fields.name, fields.podIP, group, fields.isRunning());
+    }
+
+    protected static void readPodMetadata(JsonParser parser, PodFields fields) {
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if("name".equals(key) && value == Event.VALUE_STRING)
+                fields.name=parser.getString();
+            else if("labels".equals(key) && value == Event.START_OBJECT)
+                readLabels(parser, fields);
+            else
+                skip(parser, value);
+        }
+    }
+
+    protected static void readLabels(JsonParser parser, PodFields fields) {
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if(value != Event.VALUE_STRING) {
+                skip(parser, value);
+                continue;
+            }
+            switch(key) {
+                case "pod-template-hash":        fields.podTemplateHash=parser.getString(); break;
+                case "deployment":               fields.deployment=parser.getString(); break;
+                case "controller-revision-hash": fields.controllerRevisionHash=parser.getString(); break;
+            }
+        }
+    }
+
+    protected static void readPodStatus(JsonParser parser, PodFields fields) {
+        fields.hasStatus=true;
+        while(parser.next() == Event.KEY_NAME) {
+            String key=parser.getString();
+            Event value=parser.next();
+            if(value == Event.VALUE_STRING) {
+                switch(key) {
+                    case "phase":   fields.phase=parser.getString(); break;
+                    case "message": fields.hasMessage=true; break;
+                    case "reason":  fields.hasReason=true; break;
+                    case "podIP":   fields.podIP=parser.getString(); break;
+                }
+            }
+            else if("containerStatuses".equals(key) && value == Event.START_ARRAY)
+                readContainerStatuses(parser, fields);
+            else if("conditions".equals(key) && value == Event.START_ARRAY)
+                readConditions(parser, fields);
+            else
+                skip(parser, value);
+        }
+    }
+
+    protected static void readContainerStatuses(JsonParser parser, PodFields fields) {
+        Event event;
+        while((event=parser.next()) != Event.END_ARRAY) {
+            if(event != Event.START_OBJECT) {
+                skip(parser, event);
+                continue;
+            }
+            boolean ready=false;
+            while(parser.next() == Event.KEY_NAME) {
+                String key=parser.getString();
+                Event value=parser.next();
+                if("ready".equals(key))
+                    ready=value == Event.VALUE_TRUE;
+                skip(parser, value);
+            }
+            if(!ready)
+                fields.allContainersReady=false;
+        }
+    }
+
+    protected static void readConditions(JsonParser parser, PodFields fields) {
+        Event event;
+        while((event=parser.next()) != Event.END_ARRAY) {
+            if(event != Event.START_OBJECT) {
+                skip(parser, event);
+                continue;
+            }
+            String type=null, status=null;
+            while(parser.next() == Event.KEY_NAME) {
+                String key=parser.getString();
+                Event value=parser.next();
+                if("type".equals(key) && value == Event.VALUE_STRING)
+                    type=parser.getString();
+                else if("status".equals(key) && value == Event.VALUE_STRING)
+                    status=parser.getString();
+                else
+                    skip(parser, value);
+            }
+            if("Ready".equalsIgnoreCase(type))
+                fields.readyCondition=Boolean.parseBoolean(status);
+        }
+    }
+
+    protected static void skip(JsonParser parser, Event event) {
+        if(event == Event.START_OBJECT)
+            parser.skipObject();
+        else if(event == Event.START_ARRAY)
+            parser.skipArray();
+    }
+
+    /** The fields of a pod collected while parsing it */
+    protected static class PodFields {
+        protected String  name, podIP;
+        protected String  podTemplateHash, deployment, controllerRevisionHash;
+        protected boolean hasStatus, hasMessage, hasReason;
+        protected String  phase="not running";
+        protected boolean allContainersReady=true, readyCondition;
+
+        /** Same rules as {@link Client#podRunning(jakarta.json.JsonObject)} */
+        protected boolean isRunning() {
+            return hasStatus && phase.equalsIgnoreCase("Running") && !hasMessage && !hasReason
+              && allContainersReady && readyCondition;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.jgroups.protocols.kubernetes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A file containing the pods of the last successful fetch, so that a restarted pod can ping its peers right away,
+ * instead of waiting for the first response of the API server. The file is meant to be placed on a volume which
+ * survives container restarts, e.g. an emptyDir.
+ * <p>
+ * The pods are stored in a compact binary format, which is read (memory-mapped) without any JSON parsing:
+ * <pre>
+ * int    magic ("KPS1")
+ * long   time at which the snapshot was taken (ms since the epoch)
+ * string resourceVersion
+ * int    number of pods, followed by name, IP address, pod group (strings) and readiness (byte) of every pod
+ * </pre>
+ * Strings are written as a short length (-1 for null) followed by the UTF-8 bytes. A new snapshot is written to a
+ * temporary file, which then replaces the file with an atomic rename, so that readers never see a partial file.
+ */
+public class PodSnapshotFile {
+    protected static final int MAGIC=0x4B505331; // "KPS1"
+
+    protected final Path path;
+    protected long       time; // time (ms since the epoch) at which the snapshot read last was taken
+
+    public PodSnapshotFile(String path) {
+        this.path=Paths.get(path);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the time (in ms since the epoch) at which the snapshot returned by the last {@link #read()} was taken
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Replaces the file with a snapshot of the given pods
+     */
+    public synchronized void write(List<Pod> pods, String resourceVersion) throws IOException {
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream(32 + pods.size() * 64);
+        DataOutputStream out=new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(System.currentTimeMillis());
+        writeString(out, resourceVersion);
+        out.writeInt(pods.size());
+        for(Pod pod: pods) {
+            writeString(out, pod.getName());
+            writeString(out, pod.getIp());
+            writeString(out, pod.getPodGroup());
+            out.writeByte(pod.isReady()? 1 : 0);
+        }
+        out.flush();
+
+        Path dir=path.toAbsolutePath().getParent();
+        Path tmp=Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes.toByteArray());
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads the snapshot
+     * @return the pods, or null if the file doesn't exist
+     * @throws IOException if the file could not be read or is not a snapshot
+     */
+    public synchronized PodList read() throws IOException {
+        try(FileChannel channel=FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf=channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(buf.getInt() != MAGIC)
+                throw new IOException(path + " is not a pod snapshot");
+            long snapshotTime=buf.getLong();
+            String resourceVersion=readString(buf);
+            int count=buf.getInt();
+            if(count < 0)
+                throw new IOException(path + " is corrupt");
+            List<Pod> pods=new ArrayList<>(Math.min(count, buf.remaining() / 7));
+            for(int i=0; i < count; i++) {
+                String name=readString(buf), ip=readString(buf), group=readString(buf);
+                pods.add(new Pod(name, ip, group, buf.get() != 0));
+            }
+            time=snapshotTime;
+            return new PodList(pods, resourceVersion);
+        }
+        catch(NoSuchFileException e) {
+            return null;
+        }
+        catch(BufferUnderflowException e) {
+            throw new IOException(path + " is truncated", e);
+        }
+    }
+
+    protected static void writeString(DataOutputStream out, String s) throws IOException {
+        if(s == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes=s.getBytes(StandardCharsets.UTF_8);
+        if(bytes.length > Short.MAX_VALUE)
+            throw new IOException("string too long: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(ByteBuffer buf) {
+        short length=buf.getShort();
+        if(length < 0)
+            return null;
+        if(length > buf.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes=new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
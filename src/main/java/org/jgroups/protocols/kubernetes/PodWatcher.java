@@ -0,0 +1,277 @@
+package org.jgroups.protocols.kubernetes;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import org.jgroups.logging.Log;
+import org.jgroups.util.ThreadFactory;
+import org.jgroups.util.Util;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains a local copy of the pods matching a namespace and label selector. The pods are listed once, then a
+ * watch is kept open on the API server and the local copy is updated from ADDED, MODIFIED and DELETED events.
+ * When the server closes the watch, it is resumed from the last seen resourceVersion (bookmarks advance the
+ * resourceVersion even when no pod changes). If the resourceVersion has expired (410 Gone), the pods are listed
+ * again.
+ * <p>
+ * Failed lists and watches, and watches which the server closes right away without sending any events, are retried
+ * with exponential backoff and full jitter (see {@link Utils#backoff(int, long, long)}). While the pods cannot be
+ * listed, the local copy is not {@link #isSynced() synced}, so that discovery doesn't use it indefinitely.
+ * <p>
+ * Discovery rounds read the local copy through {@link #getPods()} and therefore don't cause any network I/O.
+ */
+public class PodWatcher implements Runnable {
+    protected final Client            client;
+    protected final String            namespace;
+    protected final String            labels;
+    protected final int               watchTimeout; // in seconds
+    protected final long              retrySleep;   // in ms
+    protected long                    maxRetrySleep; // in ms
+    protected final Log               log;
+    protected final Map<String,Pod>   pods=new LinkedHashMap<>(); // keyed by pod name, guarded by this
+    protected volatile PodList        snapshot;       // null if the pods changed since the last call to getPods()
+    protected volatile boolean        synced;         // true once the pods have been listed successfully
+    protected volatile String         resourceVersion; // null if a (re-)list is required
+    protected volatile boolean        running;
+    protected volatile InputStream    stream;
+    protected Thread                  thread;
+    protected ThreadFactory           factory;
+
+    public PodWatcher(Client client, String namespace, String labels, int watchTimeout, long retrySleep, Log log) {
+        this.client=client;
+        this.namespace=namespace;
+        this.labels=labels;
+        this.watchTimeout=watchTimeout;
+        this.retrySleep=retrySleep;
+        this.maxRetrySleep=retrySleep;
+        this.log=log;
+    }
+
+    public long getMaxRetrySleep() {
+        return maxRetrySleep;
+    }
+
+    /**
+     * Sets the maximum time (in ms) slept between failed attempts to list or watch the pods; the time slept grows
+     * exponentially from retrySleep up to maxRetrySleep
+     */
+    public PodWatcher setMaxRetrySleep(long maxRetrySleep) {
+        this.maxRetrySleep=maxRetrySleep;
+        return this;
+    }
+
+    public synchronized void start(ThreadFactory factory) {
+        if(running)
+            return;
+        running=true;
+        this.factory=factory;
+        thread=factory.newThread(this, "KUBE_PING-watch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running=false;
+        InputStream in=stream;
+        if(in != null && factory != null) {
+            // unblocks the watcher thread if it is reading. Closing an HttpURLConnection stream blocks until a
+            // concurrent read returns (which can take until the watch times out), so the stream is closed by another thread
+            Thread closer=factory.newThread(() -> Util.close(in), "KUBE_PING-watch-close");
+            closer.setDaemon(true);
+            closer.start();
+        }
+        if(thread != null) {
+            thread.interrupt();
+            thread=null;
+        }
+    }
+
+    /**
+     * @return true if the pods have been listed at least once and {@link #getPods()} can be used
+     */
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public String getResourceVersion() {
+        return resourceVersion;
+    }
+
+    /**
+     * Returns the current pods; this doesn't contact the API server
+     */
+    public PodList getPods() {
+        PodList retval=snapshot;
+        if(retval != null)
+            return retval;
+        synchronized(this) {
+            if(snapshot == null)
+                snapshot=new PodList(new ArrayList<>(pods.values()), resourceVersion);
+            return snapshot;
+        }
+    }
+
+    public void run() {
+        int failures=0; // consecutive failed or unproductive watches
+        while(running) {
+            try {
+                if(resourceVersion == null)
+                    relist();
+                if(watch()) {
+                    failures=0;
+                    continue;
+                }
+                if(!running)
+                    break;
+                long sleep=Utils.backoff(++failures, retrySleep, maxRetrySleep);
+                log.debug("watch of pods in namespace [%s] with labels [%s] ended without events, watching again in %d ms",
+                          namespace, labels, sleep);
+                Util.sleep(sleep);
+            }
+            catch(Throwable t) {
+                if(!running)
+                    break;
+                long sleep=Utils.backoff(++failures, retrySleep, maxRetrySleep);
+                log.warn("watching pods in namespace [%s] with labels [%s] failed, listing pods again in %d ms: %s",
+                         namespace, labels, sleep, t);
+                resourceVersion=null;
+                Util.sleep(sleep);
+            }
+        }
+    }
+
+    /**
+     * Lists all pods and replaces the local copy. If the list fails, the local copy is no longer synced until the
+     * next successful list.
+     */
+    protected void relist() throws Exception {
+        PodList list;
+        try {
+            list=client.listPods(namespace, labels, false);
+        }
+        catch(Throwable t) {
+            synced=false;
+            throw t;
+        }
+        synchronized(this) {
+            pods.clear();
+            for(Pod pod: list)
+                pods.put(key(pod), pod);
+            resourceVersion=list.getResourceVersion();
+            snapshot=null;
+        }
+        synced=true;
+        log.debug("listed %d pods in namespace [%s] with labels [%s] at resourceVersion %s",
+                  list.size(), namespace, labels, resourceVersion);
+    }
+
+    /**
+     * Opens a watch from the current resourceVersion and applies all events until the server closes the watch
+     * @return true if the watch was productive: the server closed it without an error, after sending events or
+     * keeping it open for at least half of the watch timeout. False if the watch needs to be retried with a backoff.
+     */
+    protected boolean watch() throws Exception {
+        if(resourceVersion == null)
+            return false;
+        long start=System.nanoTime();
+        int events=0;
+        try(InputStream in=client.watchPods(namespace, labels, resourceVersion, watchTimeout)) {
+            stream=in;
+            if(!running) // stop() was called while the watch was being opened: it couldn't close the stream
+                return true;
+            BufferedReader reader=new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while(running && (line=reader.readLine()) != null) {
+                if(line.isBlank())
+                    continue;
+                if(!handleEvent(line))
+                    return false;
+                events++;
+            }
+        }
+        finally {
+            stream=null;
+        }
+        return events > 0 || System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(watchTimeout) / 2;
+    }
+
+    /**
+     * Applies a single watch event to the local copy
+     * @param line the JSON representation of the event
+     * @return false if the watch needs to be restarted with a fresh list, true otherwise
+     */
+    protected boolean handleEvent(String line) {
+        JsonObject event;
+        try(JsonReader reader=Json.createReader(new StringReader(line))) {
+            event=reader.readObject();
+        }
+        String type=event.getString("type", null);
+        JsonObject obj=event.getJsonObject("object");
+        if(type == null || obj == null) {
+            log.warn("ignoring malformed watch event: %s", line);
+            return true;
+        }
+        if("ERROR".equals(type)) {
+            int code=obj.getInt("code", 0);
+            if(code == Client.HTTP_GONE)
+                log.debug("resourceVersion %s has expired, listing pods again", resourceVersion);
+            else
+                log.warn("watch failed with code %d (%s), listing pods again", code, obj.getString("message", null));
+            resourceVersion=null;
+            return false;
+        }
+
+        JsonObject metadata=obj.getJsonObject("metadata");
+        String version=metadata != null? metadata.getString("resourceVersion", null) : null;
+        synchronized(this) {
+            switch(type) {
+                case "ADDED":
+                case "MODIFIED":
+                    Pod pod=client.parsePod(obj);
+                    if(pod.getIp() == null) // no IP (yet, or any more): nobody to ping
+                        changed(pods.remove(key(pod)) != null);
+                    else {
+                        Pod old=pods.put(key(pod), pod);
+                        changed(!pod.equals(old) || old.isReady() != pod.isReady()); // equals() ignores readiness
+                    }
+                    break;
+                case "DELETED":
+                    changed(pods.remove(key(client.parsePod(obj))) != null);
+                    break;
+                case "BOOKMARK":
+                    break;
+                default:
+                    log.trace("ignoring watch event of type %s", type);
+                    break;
+            }
+            if(version != null)
+                resourceVersion=version;
+        }
+        return true;
+    }
+
+    protected void changed(boolean changed) {
+        if(changed)
+            snapshot=null;
+    }
+
+    protected static String key(Pod pod) {
+        return pod.getName() != null? pod.getName() : pod.getIp();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[namespace=%s, labels=%s, resourceVersion=%s, pods=%d]",
+                             getClass().getSimpleName(), namespace, labels, resourceVersion, pods.size());
+    }
+}
@@ -0,0 +1,342 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.jgroups.logging.Log;
+import org.jgroups.protocols.kubernetes.PodListParser.PodFields;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder for PodList responses in the Kubernetes protobuf format (application/vnd.kubernetes.protobuf). Only the
+ * fields needed to create a {@link Pod} are decoded, all other fields are skipped; no generated Kubernetes model
+ * classes are needed.
+ * <p>
+ * A response consists of the magic prefix "k8s\0" followed by a runtime.Unknown envelope, whose raw field contains
+ * the PodList. The field numbers used below are those of k8s.io/api/core/v1/generated.proto and
+ * k8s.io/apimachinery/pkg/apis/meta/v1/generated.proto.
+ * <p>
+ * The result is the same as that of {@link PodListParser} for the equivalent JSON response. Kubernetes always
+ * encodes string fields in protobuf, even when empty; empty strings are therefore treated like fields which are
+ * omitted in JSON.
+ */
+public class ProtobufPodListParser {
+    protected static final byte[] MAGIC={'k', '8', 's', 0};
+
+    // runtime.Unknown
+    protected static final int UNKNOWN_TYPE_META=1, UNKNOWN_RAW=2, UNKNOWN_CONTENT_ENCODING=3;
+    protected static final int TYPE_META_KIND=2;
+    // PodList and ListMeta
+    protected static final int LIST_METADATA=1, LIST_ITEMS=2;
+    protected static final int LIST_META_RESOURCE_VERSION=2, LIST_META_CONTINUE=3;
+    // Pod and ObjectMeta
+    protected static final int POD_METADATA=1, POD_STATUS=3;
+    protected static final int META_NAME=1, META_LABELS=11;
+    protected static final int MAP_KEY=1, MAP_VALUE=2;
+    // PodStatus, PodCondition and ContainerStatus
+    protected static final int STATUS_PHASE=1, STATUS_CONDITIONS=2, STATUS_MESSAGE=3, STATUS_REASON=4, STATUS_POD_IP=6,
+      STATUS_CONTAINER_STATUSES=8;
+    protected static final int CONDITION_TYPE=1, CONDITION_STATUS=2;
+    protected static final int CONTAINER_READY=4;
+
+    protected final Log log;
+
+    public ProtobufPodListParser(Log log) {
+        this.log=log;
+    }
+
+    /**
+     * Checks if the stream starts with the magic prefix of the Kubernetes protobuf format, without consuming it
+     * @param in a stream which supports {@link InputStream#mark(int)}
+     */
+    public static boolean isProtobuf(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        try {
+            byte[] prefix=in.readNBytes(MAGIC.length);
+            return hasMagic(prefix, prefix.length);
+        }
+        finally {
+            in.reset();
+        }
+    }
+
+    protected static boolean hasMagic(byte[] data, int length) {
+        if(length < MAGIC.length)
+            return false;
+        for(int i=0; i < MAGIC.length; i++)
+            if(data[i] != MAGIC[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Decodes a PodList
+     * @param input the response of the API server, starting with the magic prefix
+     * @return the list of pods which have an IP address, or null if the response is not a PodList
+     * @throws IOException if reading the input failed, or if the input is not valid protobuf
+     */
+    public PodList parse(InputStream input) throws IOException {
+        byte[] data=input.readAllBytes();
+        if(!hasMagic(data, data.length)) {
+            log.error("Response is not in Kubernetes protobuf format");
+            return null;
+        }
+        Reader unknown=new Reader(data, MAGIC.length, data.length);
+        Reader raw=null;
+        String kind=null, contentEncoding=null;
+        while(unknown.hasMore()) {
+            int tag=unknown.readTag();
+            switch(tag >>> 3) {
+                case UNKNOWN_TYPE_META:
+                    Reader typeMeta=unknown.readMessage();
+                    while(typeMeta.hasMore()) {
+                        int t=typeMeta.readTag();
+                        if(t >>> 3 == TYPE_META_KIND)
+                            kind=typeMeta.readString();
+                        else
+                            typeMeta.skip(t);
+                    }
+                    break;
+                case UNKNOWN_RAW:
+                    raw=unknown.readMessage();
+                    break;
+                case UNKNOWN_CONTENT_ENCODING:
+                    contentEncoding=unknown.readString();
+                    break;
+                default:
+                    unknown.skip(tag);
+                    break;
+            }
+        }
+        if(kind != null && !kind.isEmpty() && !"PodList".equals(kind)) {
+            log.error("Protobuf response is a %s, not a PodList", kind);
+            return null;
+        }
+        if(contentEncoding != null && !contentEncoding.isEmpty())
+            throw new IOException("unsupported content encoding of protobuf response: " + contentEncoding);
+        if(raw == null) {
+            log.error("Protobuf response is missing the PodList");
+            return null;
+        }
+        return readPodList(raw);
+    }
+
+    protected PodList readPodList(Reader in) throws IOException {
+        String resourceVersion=null, continueToken=null;
+        List<Pod> pods=new ArrayList<>();
+        while(in.hasMore()) {
+            int tag=in.readTag();
+            switch(tag >>> 3) {
+                case LIST_METADATA:
+                    Reader metadata=in.readMessage();
+                    while(metadata.hasMore()) {
+                        int t=metadata.readTag();
+                        switch(t >>> 3) {
+                            case LIST_META_RESOURCE_VERSION: resourceVersion=metadata.readString(); break;
+                            case LIST_META_CONTINUE:         continueToken=metadata.readString(); break;
+                            default:                         metadata.skip(t); break;
+                        }
+                    }
+                    break;
+                case LIST_ITEMS:
+                    Pod pod=readPod(in.readMessage());
+                    if(pod.getIp() == null)
+                        log.trace("Skipping pod %s since its IP is %s", pod.getName(), pod.getIp());
+                    else
+                        pods.add(pod);
+                    break;
+                default:
+                    in.skip(tag);
+                    break;
+            }
+        }
+        return new PodList(pods, emptyToNull(resourceVersion), continueToken);
+    }
+
+    protected Pod readPod(Reader in) throws IOException {
+        PodFields fields=new PodFields();
+        while(in.hasMore()) {
+            int tag=in.readTag();
+            switch(tag >>> 3) {
+                case POD_METADATA: readPodMetadata(in.readMessage(), fields); break;
+                case POD_STATUS:   readPodStatus(in.readMessage(), fields); break;
+                default:           in.skip(tag); break;
+            }
+        }
+        String group=fields.podTemplateHash;
+        if(group == null)
+            group=fields.deployment;
+        if(group == null)
+            group=fields.controllerRevisionHash;
+        log.debug("pod %s, group %s", fields.name, group);
+        return new Pod(fields.name, fields.podIP, group, fields.isRunning());
+    }
+
+    protected static void readPodMetadata(Reader in, PodFields fields) throws IOException {
+        while(in.hasMore()) {
+            int tag=in.readTag();
+            switch(tag >>> 3) {
+                case META_NAME:
+                    fields.name=emptyToNull(in.readString());
+                    break;
+                case META_LABELS: // map<string,string> entries
+                    Reader entry=in.readMessage();
+                    String key=null, value="";
+                    while(entry.hasMore()) {
+                        int t=entry.readTag();
+                        switch(t >>> 3) {
+                            case MAP_KEY:   key=entry.readString(); break;
+                            case MAP_VALUE: value=entry.readString(); break;
+                            default:        entry.skip(t); break;
+                        }
+                    }
+                    if(key != null) {
+                        switch(key) {
+                            case "pod-template-hash":        fields.podTemplateHash=value; break;
+                            case "deployment":               fields.deployment=value; break;
+                            case "controller-revision-hash": fields.controllerRevisionHash=value; break;
+                        }
+                    }
+                    break;
+                default:
+                    in.skip(tag);
+                    break;
+            }
+        }
+    }
+
+    protected static void readPodStatus(Reader in, PodFields fields) throws IOException {
+        fields.hasStatus=true;
+        while(in.hasMore()) {
+            int tag=in.readTag();
+            switch(tag >>> 3) {
+                case STATUS_PHASE:
+                    String phase=in.readString();
+                    if(!phase.isEmpty())
+                        fields.phase=phase;
+                    break;
+                case STATUS_MESSAGE:
+                    fields.hasMessage|=!in.readString().isEmpty();
+                    break;
+                case STATUS_REASON:
+                    fields.hasReason|=!in.readString().isEmpty();
+                    break;
+                case STATUS_POD_IP:
+                    fields.podIP=emptyToNull(in.readString());
+                    break;
+                case STATUS_CONDITIONS:
+                    Reader condition=in.readMessage();
+                    String type=null, status=null;
+                    while(condition.hasMore()) {
+                        int t=condition.readTag();
+                        switch(t >>> 3) {
+                            case CONDITION_TYPE:   type=condition.readString(); break;
+                            case CONDITION_STATUS: status=condition.readString(); break;
+                            default:               condition.skip(t); break;
+                        }
+                    }
+                    if("Ready".equalsIgnoreCase(type))
+                        fields.readyCondition=Boolean.parseBoolean(status);
+                    break;
+                case STATUS_CONTAINER_STATUSES:
+                    Reader containerStatus=in.readMessage();
+                    boolean ready=false;
+                    while(containerStatus.hasMore()) {
+                        int t=containerStatus.readTag();
+                        if(t >>> 3 == CONTAINER_READY)
+                            ready=containerStatus.readVarint() != 0;
+                        else
+                            containerStatus.skip(t);
+                    }
+                    if(!ready)
+                        fields.allContainersReady=false;
+                    break;
+                default:
+                    in.skip(tag);
+                    break;
+            }
+        }
+    }
+
+    protected static String emptyToNull(String s) {
+        return s == null || s.isEmpty()? null : s;
+    }
+
+    /**
+     * Reads protobuf fields from a range of a byte array; length-delimited sub-messages are read without copying
+     */
+    protected static class Reader {
+        protected static final int VARINT=0, FIXED64=1, LENGTH_DELIMITED=2, FIXED32=5;
+
+        protected final byte[] data;
+        protected final int    limit;
+        protected int          pos;
+
+        protected Reader(byte[] data, int offset, int limit) {
+            this.data=data;
+            this.pos=offset;
+            this.limit=limit;
+        }
+
+        protected boolean hasMore() {
+            return pos < limit;
+        }
+
+        protected int readTag() throws IOException {
+            return (int)readVarint();
+        }
+
+        protected long readVarint() throws IOException {
+            long result=0;
+            for(int shift=0; shift < 64; shift+=7) {
+                if(pos >= limit)
+                    throw new IOException("truncated protobuf message");
+                byte b=data[pos++];
+                result|=(long)(b & 0x7F) << shift;
+                if((b & 0x80) == 0)
+                    return result;
+            }
+            throw new IOException("malformed varint in protobuf message");
+        }
+
+        protected int readLength() throws IOException {
+            long length=readVarint();
+            if(length < 0 || length > limit - pos)
+                throw new IOException("truncated protobuf message");
+            return (int)length;
+        }
+
+        protected Reader readMessage() throws IOException {
+            int length=readLength();
+            Reader retval=new Reader(data, pos, pos + length);
+            pos+=length;
+            return retval;
+        }
+
+        protected String readString() throws IOException {
+            int length=readLength();
+            String retval=new String(data, pos, length, StandardCharsets.UTF_8);
+            pos+=length;
+            return retval;
+        }
+
+        /** Skips the value of the field with the given tag */
+        protected void skip(int tag) throws IOException {
+            switch(tag & 0x7) {
+                case VARINT:           readVarint(); break;
+                case FIXED64:          advance(8); break;
+                case LENGTH_DELIMITED: advance(readLength()); break;
+                case FIXED32:          advance(4); break;
+                default:               throw new IOException("unsupported protobuf wire type " + (tag & 0x7));
+            }
+        }
+
+        protected void advance(int length) throws IOException {
+            if(length > limit - pos)
+                throw new IOException("truncated protobuf message");
+            pos+=length;
+        }
+    }
+}
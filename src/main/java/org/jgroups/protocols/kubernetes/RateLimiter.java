@@ -0,0 +1,123 @@
+package org.jgroups.protocols.kubernetes;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the rate of requests to the Kubernetes API server. The bucket holds up to burst tokens and
+ * is refilled at rate tokens per second; every request takes a token, waiting for one if the bucket is empty.
+ * <p>
+ * Optionally, the first request is delayed by a random time, so that the first requests of many pods started at the
+ * same time (e.g. when scaling up) are spread over a time window instead of hitting the API server at once.
+ * <p>
+ * When the API server asks clients to back off (429 or 503 with a Retry-After header), {@link #pause(long)} holds
+ * back all requests until the given time has elapsed.
+ */
+public class RateLimiter {
+    protected final double rate;   // tokens per second, 0 for no limit
+    protected final int    burst;
+    protected double       tokens; // negative if requests are waiting for tokens; guarded by this
+    protected long         last;   // time (ns) of the last refill; guarded by this
+    protected long         start;  // time (ns) before which no request is sent (startup delay or pause); guarded by this
+
+    /**
+     * @param rate the number of requests per second, 0 for no limit
+     * @param burst the number of requests which can be sent without waiting after a period without requests
+     * @param startupDelay the maximum delay (in ms) of the first request; the actual delay is random
+     */
+    public RateLimiter(double rate, int burst, long startupDelay) {
+        this.rate=Math.max(rate, 0);
+        this.burst=Math.max(burst, 1);
+        this.tokens=this.burst;
+        this.last=System.nanoTime();
+        this.start=last + (startupDelay > 0? TimeUnit.MILLISECONDS.toNanos(ThreadLocalRandom.current().nextLong(startupDelay + 1)) : 0);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Takes a token, blocking until it is available
+     */
+    public void acquire() throws InterruptedException {
+        long wait=reserve();
+        if(wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    /**
+     * Takes a token without blocking
+     * @return the time (in ns) the caller has to wait before sending the request
+     */
+    public synchronized long reserve() {
+        long now=System.nanoTime();
+        long wait=Math.max(start - now, 0);
+        if(rate == 0)
+            return wait;
+        refill(now);
+        tokens--;
+        if(tokens < 0)
+            wait=Math.max(wait, (long)(-tokens * TimeUnit.SECONDS.toNanos(1) / rate));
+        return wait;
+    }
+
+    /**
+     * Takes a token if the request can be sent right away; used by callers which must not block, and which try again
+     * later instead
+     * @return 0 if a token was taken, otherwise the time (in ns) until a token is available; no token is taken then
+     */
+    public synchronized long tryAcquire() {
+        long now=System.nanoTime();
+        long wait=Math.max(start - now, 0);
+        if(rate > 0) {
+            refill(now);
+            if(tokens < 1)
+                wait=Math.max(wait, (long)((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / rate));
+            if(wait == 0)
+                tokens--;
+        }
+        return wait;
+    }
+
+    /**
+     * Holds back all requests for the given time, e.g. after the API server responded with a Retry-After header
+     * @param time the time in ms; a shorter pause than the current one has no effect
+     */
+    public synchronized void pause(long time) {
+        if(time > 0)
+            start=Math.max(start, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(time));
+    }
+
+    protected void refill(long now) {
+        tokens=Math.min(burst, tokens + (now - last) * rate / TimeUnit.SECONDS.toNanos(1));
+        last=now;
+    }
+
+    /**
+     * Thrown instead of waiting for a token by callers which must not block; the request should be sent again after
+     * {@link #getDelay()} ns. No token has been taken.
+     */
+    public static class DelayException extends Exception {
+        private static final long serialVersionUID=5032405744536349751L;
+        protected final long delay;
+
+        public DelayException(long delay) {
+            super(String.format("rate limited for %d ms", TimeUnit.NANOSECONDS.toMillis(delay)), null, false, false);
+            this.delay=delay;
+        }
+
+        public long getDelay() {
+            return delay;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[rate=%s/s, burst=%d]", getClass().getSimpleName(), rate, burst);
+    }
+}
@@ -0,0 +1,177 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.jgroups.util.DefaultThreadFactory;
+import org.jgroups.util.ThreadFactory;
+import org.jgroups.util.TimeScheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Client} (and optionally a {@link PodWatcher}) shared by all {@link KUBE_PING} instances in a JVM which
+ * use the same configuration, e.g. the channels of an Infinispan cache container or fork channels. All of them then
+ * use one connection to the API server and see the same pods, instead of each one querying the API server for the
+ * same pods: pods fetched by one protocol are reused by the others for a configurable time, and concurrent fetches
+ * are coalesced by the client.
+ * <p>
+ * Instances are kept in a JVM-wide registry, keyed by a digest of the configuration (API server URL, namespace,
+ * labels, credentials and options), so that no credentials are kept in the registry. The client and the watcher are
+ * reference counted: the watcher is stopped when the last protocol stops it, and the client is closed and removed
+ * from the registry when the last protocol releases it.
+ * <p>
+ * As the client and the watcher outlive the protocol which created them, they must not use its log or thread
+ * factory; the watcher runs on a thread of the shared client's own thread factory.
+ */
+public class SharedClient {
+    protected static final Map<String,SharedClient> registry=new HashMap<>(); // guarded by registry
+
+    protected final String        key;
+    protected final Client        client;
+    protected final ThreadFactory thread_factory=new DefaultThreadFactory("KUBE_PING-shared", true);
+    protected int                 refs;         // guarded by registry
+    protected PodWatcher          watcher;      // guarded by this
+    protected int                 watcherRefs;  // guarded by this
+    protected volatile Snapshot   snapshot;     // the pods last fetched by getPodsAsync(), null if none yet
+
+    protected SharedClient(String key, Client client) {
+        this.key=key;
+        this.client=client;
+    }
+
+    /**
+     * Returns the shared client for the given configuration, creating it if it doesn't exist yet. Every call must
+     * be matched by a call to {@link #release()}.
+     * @param key the configuration; all elements which affect the result of a request must be included. Only a
+     *            digest of the key is kept.
+     * @param factory creates the client if there is no client for key
+     */
+    public static SharedClient acquire(List<?> key, Callable<Client> factory) throws Exception {
+        String digest=digest(key);
+        synchronized(registry) {
+            SharedClient shared=registry.get(digest);
+            if(shared == null)
+                registry.put(digest, shared=new SharedClient(digest, factory.call()));
+            shared.refs++;
+            return shared;
+        }
+    }
+
+    /**
+     * Releases the client. When the last reference has been released, the watcher (if still running) is stopped, the
+     * client is closed and removed from the registry.
+     */
+    public void release() {
+        synchronized(registry) {
+            if(refs == 0 || --refs > 0)
+                return;
+            registry.remove(key, this);
+        }
+        synchronized(this) {
+            if(watcher != null) {
+                watcher.stop();
+                watcher=null;
+                watcherRefs=0;
+            }
+        }
+        client.close();
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    /**
+     * Fetches the pods through the shared client, unless pods fetched (by any protocol using this instance) not
+     * longer than max_age ms ago are available. Concurrent fetches are coalesced by {@link Client#getPodsAsync}.
+     * Failed fetches are not cached.
+     * @param max_age the maximum age (in ms) of pods which are reused; 0 only coalesces concurrent fetches
+     */
+    public CompletableFuture<PodList> getPodsAsync(String namespace, String labels, boolean dump_requests,
+                                                   TimeScheduler timer, long max_age) {
+        Snapshot s=snapshot;
+        if(s != null && max_age > 0 && System.nanoTime() - s.time <= TimeUnit.MILLISECONDS.toNanos(max_age))
+            return CompletableFuture.completedFuture(s.pods);
+        return client.getPodsAsync(namespace, labels, dump_requests, timer).whenComplete((pods, t) -> {
+            if(pods != null)
+                snapshot=new Snapshot(pods, System.nanoTime());
+        });
+    }
+
+    /**
+     * Returns the shared watcher, creating and starting it if it isn't running yet. Every call must be matched by a
+     * call to {@link #stopWatcher()}.
+     */
+    public synchronized PodWatcher startWatcher(Supplier<PodWatcher> factory) {
+        if(watcher == null) {
+            watcher=factory.get();
+            watcher.start(thread_factory);
+        }
+        watcherRefs++;
+        return watcher;
+    }
+
+    /**
+     * Stops the watcher when the last protocol using it has stopped
+     */
+    public synchronized void stopWatcher() {
+        if(watcherRefs > 0 && --watcherRefs == 0) {
+            watcher.stop();
+            watcher=null;
+        }
+    }
+
+    /**
+     * @return the number of protocols using the client
+     */
+    public int getReferences() {
+        synchronized(registry) {
+            return refs;
+        }
+    }
+
+    /**
+     * Returns a SHA-256 digest of the elements of key. The elements are written with their length, so that e.g.
+     * [a,b] and [a, b] have different digests.
+     */
+    protected static String digest(List<?> key) {
+        try {
+            ByteArrayOutputStream out=new ByteArrayOutputStream();
+            DataOutputStream data=new DataOutputStream(out);
+            for(Object element: key) {
+                data.writeBoolean(element != null);
+                if(element != null)
+                    data.writeUTF(element.toString());
+            }
+            data.flush();
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(out.toByteArray()));
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is supported by every JVM
+        }
+    }
+
+    protected static class Snapshot {
+        protected final PodList pods;
+        protected final long    time; // ns
+
+        protected Snapshot(PodList pods, long time) {
+            this.pods=pods;
+            this.time=time;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 
 package org.jgroups.protocols.kubernetes;
 
+import org.jgroups.protocols.kubernetes.jfr.RetryEvent;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
 import org.jgroups.protocols.kubernetes.stream.OpenStream;
 import org.jgroups.protocols.kubernetes.stream.StreamProvider;
 import org.jgroups.protocols.kubernetes.stream.TokenStreamProvider;
@@ -16,6 +18,7 @@ import java.security.PrivilegedAction;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -113,11 +116,22 @@ public final class Utils {
     }
 
     public static <V> V execute(Callable<V> callable, int attempts, long sleep, boolean throwOnFail) throws Exception {
+        return execute(callable, attempts, sleep, sleep, throwOnFail);
+    }
+
+    /**
+     * Calls callable until it returns a non-null value, at most attempts times. After a failed attempt, the time
+     * returned by {@link #retryDelay(Throwable, int, long, long)} is slept. Failures which are not {@link #isRetryable(Throwable)
+     * retryable} are not retried.
+     * @param sleep the initial sleep in ms
+     * @param maxSleep the maximum sleep in ms; if not greater than sleep, a fixed sleep is used
+     */
+    public static <V> V execute(Callable<V> callable, int attempts, long sleep, long maxSleep, boolean throwOnFail) throws Exception {
         V value = null;
-        int tries = attempts;
+        int attempt = 0;
         Throwable lastFail = null;
-        while (tries > 0) {
-            tries--;
+        while (attempt < attempts) {
+            attempt++;
             try {
                value = callable.call();
                if (value != null) {
@@ -126,17 +140,26 @@ public final class Utils {
                }
             } catch (Throwable fail) {
                 lastFail = fail;
+                if (!isRetryable(fail)) {
+                    break;
+                }
             }
-            try {
-                Thread.sleep(sleep);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException(e);
+            if (attempt < attempts) {
+                long delay = retryDelay(lastFail, attempt, sleep, maxSleep);
+                RetryEvent event = new RetryEvent();
+                event.begin();
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                event.retried(callable.getClass().getSimpleName(), attempt, attempts, delay, lastFail);
             }
         }
         if (lastFail != null && (throwOnFail || log.isLoggable(Level.INFO))) {
-            String emsg = String.format("%s attempt(s) with a %sms sleep to execute [%s] failed. Last failure was [%s: %s]",
-                    attempts, sleep, callable.getClass().getSimpleName(), lastFail.getClass().getName(), lastFail.getMessage());
+            String emsg = String.format("%s of %s attempt(s) with a %sms (max %sms) sleep to execute [%s] failed. Last failure was [%s: %s]",
+                    attempt, attempts, sleep, Math.max(sleep, maxSleep), callable.getClass().getSimpleName(), lastFail.getClass().getName(), lastFail.getMessage());
             if (throwOnFail) {
                 throw new Exception(emsg, lastFail);
             } else {
@@ -146,6 +169,53 @@ public final class Utils {
         return value;
     }
 
+    /**
+     * Returns the time to sleep after the given failed attempt: exponential backoff with full jitter, i.e. a random
+     * time between 0 and min(maxSleep, sleep * 2^(attempt-1)). The randomness keeps clients which failed at the same
+     * time (e.g. pods started together) from retrying in lockstep.
+     * @param attempt the number of the failed attempt, starting at 1
+     * @param sleep the initial sleep in ms
+     * @param maxSleep the cap in ms; if not greater than sleep, sleep is returned (fixed sleep without jitter)
+     */
+    public static long backoff(int attempt, long sleep, long maxSleep) {
+        if (sleep <= 0 || maxSleep <= sleep) {
+            return Math.max(sleep, 0);
+        }
+        int shift = Math.max(attempt - 1, 0);
+        long ceiling = shift < Long.numberOfLeadingZeros(sleep) - 1 ? Math.min(maxSleep, sleep << shift) : maxSleep;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Returns the time to sleep before retrying after the given failed attempt: the time requested by the server
+     * with a Retry-After header if there is one (e.g. with 429 Too Many Requests or 503 Service Unavailable),
+     * otherwise {@link #backoff(int, long, long)}
+     * @param failure the failure of the attempt, may be null
+     */
+    public static long retryDelay(Throwable failure, int attempt, long sleep, long maxSleep) {
+        long retryAfter = failure != null ? HttpResponseException.getRetryAfter(failure) : -1;
+        return retryAfter >= 0 ? retryAfter : backoff(attempt, sleep, maxSleep);
+    }
+
+    /**
+     * Checks if a failed operation can succeed when it is retried. Client errors (HTTP 4xx) are not retryable,
+     * except for 401 (the token may have been refreshed), 408 (Request Timeout) and 429 (Too Many Requests).
+     * Requests rejected by an open {@link CircuitBreaker} are not retryable either. All other failures (e.g. I/O
+     * errors and HTTP 5xx) are retryable.
+     */
+    public static boolean isRetryable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CircuitBreaker.OpenException) {
+                return false;
+            }
+        }
+        int responseCode = HttpResponseException.getResponseCode(failure);
+        if (responseCode < 400 || responseCode >= 500) {
+            return true;
+        }
+        return responseCode == 401 || responseCode == 408 || responseCode == 429;
+    }
+
     /**
      * Sanitizes a map of HTTP headers - all entries where the key equals "Authorization" (case-insensitive) are
      * overridden to mask the original authorization data.
@@ -0,0 +1,116 @@
+package org.jgroups.protocols.kubernetes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jgroups.protocols.kubernetes.ClientStats;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A request to the Kubernetes API server. The event starts when the request is sent and ends when the response
+ * body has been read and closed (or when the request failed), so it includes connecting, the TLS handshake, waiting
+ * for the response and transferring the body. For long watches, the event spans the whole watch.
+ */
+@Name("org.jgroups.kubernetes.ApiRequest")
+@Label("Kubernetes API Request")
+@Category({"JGroups", "Kubernetes"})
+@Description("A request to the Kubernetes API server, until the response has been read")
+@StackTrace(false)
+public class ApiRequestEvent extends Event {
+
+    @Label("URL")
+    public String url;
+
+    @Label("Time to Response")
+    @Description("Time until the response (or the failure) was received")
+    @Timespan(Timespan.NANOSECONDS)
+    public long timeToResponse;
+
+    @Label("Bytes Read")
+    @Description("Number of bytes of the response body read, after decompression")
+    @DataAmount
+    public long bytes;
+
+    @Label("Response Code")
+    @Description("The HTTP status of an error response, or 0")
+    public int responseCode;
+
+    @Label("Failure")
+    @Description("The cause of the failure, e.g. http-503 or timeout, or null if the request succeeded")
+    public String failure;
+
+    /**
+     * Completes the event when the response body has been read and closed
+     * @param body the response body
+     * @param timeToResponse the time (in ns) until the response was received
+     * @return the body, wrapped so that the bytes read are counted, or the body itself if the event is not enabled
+     */
+    public InputStream track(String url, InputStream body, long timeToResponse) {
+        if(!isEnabled())
+            return body;
+        this.url=url;
+        this.timeToResponse=timeToResponse;
+        return new FilterInputStream(body) {
+            protected boolean closed;
+
+            @Override
+            public int read() throws IOException {
+                int b=super.read();
+                if(b >= 0)
+                    bytes++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n=super.read(b, off, len);
+                if(n > 0)
+                    bytes+=n;
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped=super.skip(n);
+                bytes+=skipped;
+                return skipped;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                }
+                finally {
+                    if(!closed) {
+                        closed=true;
+                        commit();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Commits the event of a failed request
+     * @param timeToResponse the time (in ns) until the failure was received
+     */
+    public void failed(String url, long timeToResponse, Throwable failure) {
+        if(!shouldCommit())
+            return;
+        this.url=url;
+        this.timeToResponse=timeToResponse;
+        this.responseCode=Math.max(HttpResponseException.getResponseCode(failure), 0);
+        this.failure=ClientStats.cause(failure);
+        commit();
+    }
+}
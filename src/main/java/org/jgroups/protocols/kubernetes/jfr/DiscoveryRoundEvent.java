@@ -0,0 +1,48 @@
+package org.jgroups.protocols.kubernetes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A discovery round of KUBE_PING: fetching the pods and sending the discovery requests to them. The event ends when
+ * the last request has been handed to the transport (or to the executor sending the requests); the responses are
+ * not part of it.
+ */
+@Name("org.jgroups.kubernetes.DiscoveryRound")
+@Label("KUBE_PING Discovery Round")
+@Category({"JGroups", "Kubernetes"})
+@Description("Fetching the pods and sending discovery requests to them")
+@StackTrace(false)
+public class DiscoveryRoundEvent extends Event {
+
+    @Label("Cluster")
+    public String cluster;
+
+    @Label("Initial Discovery")
+    public boolean initialDiscovery;
+
+    @Label("Pods")
+    @Description("The number of pods fetched")
+    public int pods;
+
+    @Label("Ready Pods")
+    public int readyPods;
+
+    @Label("Targets")
+    @Description("The number of discovery requests sent (one per pod and port)")
+    public int targets;
+
+    @Label("Fetch Time")
+    @Description("Time until the pods were fetched")
+    @Timespan(Timespan.NANOSECONDS)
+    public long fetchTime;
+
+    @Label("Pinged Known Pods First")
+    @Description("Whether the pods of the previous round were pinged while the pods were being fetched")
+    public boolean pingedKnownPods;
+}
@@ -0,0 +1,82 @@
+package org.jgroups.protocols.kubernetes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The parsing of a list of pods (or EndpointSlices) returned by the Kubernetes API server. Streaming parsers read
+ * the response while they parse it, so for them the event includes reading the response.
+ */
+@Name("org.jgroups.kubernetes.Parse")
+@Label("Kubernetes Pod List Parsing")
+@Category({"JGroups", "Kubernetes"})
+@Description("The parsing of a list of pods returned by the Kubernetes API server")
+@StackTrace(false)
+public class ParseEvent extends Event {
+
+    @Label("Format")
+    @Description("json, json-stream, protobuf or endpointslices")
+    public String format;
+
+    @Label("Bytes Parsed")
+    @Description("The size of the response (characters for a response which was read into memory)")
+    @DataAmount
+    public long bytes;
+
+    @Label("Pods")
+    @Description("The number of pods parsed, or -1 if the response could not be parsed")
+    public int pods;
+
+    /**
+     * @return the input, wrapped so that the bytes parsed are counted, or the input itself if the event is not enabled
+     */
+    public InputStream track(InputStream input) {
+        if(!isEnabled())
+            return input;
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                int b=super.read();
+                if(b >= 0)
+                    bytes++;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n=super.read(b, off, len);
+                if(n > 0)
+                    bytes+=n;
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped=super.skip(n);
+                bytes+=skipped;
+                return skipped;
+            }
+        };
+    }
+
+    /**
+     * Commits the event if it is enabled
+     * @param pods the number of pods parsed, or -1 if the response could not be parsed
+     */
+    public void parsed(String format, int pods) {
+        if(!shouldCommit())
+            return;
+        this.format=format;
+        this.pods=pods;
+        commit();
+    }
+}
@@ -0,0 +1,57 @@
+package org.jgroups.protocols.kubernetes.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import org.jgroups.protocols.kubernetes.ClientStats;
+
+/**
+ * A failed attempt of an operation against the Kubernetes API server which is retried. When the caller sleeps
+ * before the next attempt, the event spans the sleep; when the next attempt is scheduled instead, the event is
+ * instantaneous and the delay is in {@link #delay}.
+ */
+@Name("org.jgroups.kubernetes.Retry")
+@Label("Kubernetes API Retry")
+@Category({"JGroups", "Kubernetes"})
+@Description("A failed attempt of an operation against the Kubernetes API server, which is retried after a delay")
+@StackTrace(false)
+public class RetryEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Attempt")
+    @Description("The number of the failed attempt, starting at 1")
+    public int attempt;
+
+    @Label("Attempts")
+    @Description("The maximum number of attempts")
+    public int attempts;
+
+    @Label("Delay")
+    @Description("The time until the next attempt")
+    @Timespan(Timespan.MILLISECONDS)
+    public long delay;
+
+    @Label("Failure")
+    @Description("The cause of the failure, e.g. http-503 or timeout")
+    public String failure;
+
+    /**
+     * Commits the event if it is enabled
+     */
+    public void retried(String operation, int attempt, int attempts, long delay, Throwable failure) {
+        if(!shouldCommit())
+            return;
+        this.operation=operation;
+        this.attempt=attempt;
+        this.attempts=attempts;
+        this.delay=delay;
+        this.failure=failure != null? ClientStats.cause(failure) : null;
+        commit();
+    }
+}
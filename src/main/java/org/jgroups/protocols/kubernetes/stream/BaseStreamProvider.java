@@ -2,16 +2,64 @@ package org.jgroups.protocols.kubernetes.stream;
 
 import org.jgroups.protocols.kubernetes.Utils;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 public abstract class BaseStreamProvider implements StreamProvider {
     private static final Logger log = Logger.getLogger(BaseStreamProvider.class.getName());
 
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    static final String GZIP = "gzip";
+
+    private volatile boolean compression = true;
+    private final LongAdder bytesReceived = new LongAdder(); // as received from the server, possibly compressed
+    private final LongAdder bytesDecoded = new LongAdder();  // after decompression
+
+    /**
+     * @return true if the server is asked to compress responses with gzip
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets whether the server is asked to compress responses with gzip; compressed responses are decompressed
+     * transparently while they are read
+     */
+    public BaseStreamProvider setCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @return the number of response bytes received from the server, compressed if the server compressed them
+     */
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    /**
+     * @return the number of response bytes after decompression
+     */
+    public long getBytesDecoded() {
+        return bytesDecoded.sum();
+    }
+
+    public void resetStats() {
+        bytesReceived.reset();
+        bytesDecoded.reset();
+    }
+
     public URLConnection openConnection(String url, Map<String, String> headers, int connectTimeout, int readTimeout) throws IOException {
         if (log.isLoggable(Level.FINE)) {
             log.log(Level.FINE, String.format("%s opening connection: url [%s], headers [%s], connectTimeout [%s], readTimeout [%s]",
@@ -29,7 +77,80 @@ public abstract class BaseStreamProvider implements StreamProvider {
         }
         connection.setConnectTimeout(connectTimeout);
         connection.setReadTimeout(readTimeout);
+        if (compression && connection.getRequestProperty(ACCEPT_ENCODING) == null) {
+            connection.setRequestProperty(ACCEPT_ENCODING, GZIP);
+        }
         return connection;
     }
 
+    /**
+     * Returns the input stream of the connection; HTTP error statuses are reported as {@link HttpResponseException}.
+     * A gzip compressed response is decompressed while it is read.
+     */
+    protected InputStream getInputStream(URLConnection connection) throws IOException {
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+            int responseCode = httpConnection.getResponseCode();
+            if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                // drain the error stream so that the connection can be reused
+                try (InputStream errorStream = httpConnection.getErrorStream()) {
+                    if (errorStream != null) {
+                        errorStream.transferTo(OutputStream.nullOutputStream());
+                    }
+                } catch (IOException ignore) {
+                }
+                throw new HttpResponseException(responseCode, String.format("Server returned HTTP response code: %d (%s) for URL: %s",
+                        responseCode, httpConnection.getResponseMessage(), connection.getURL()),
+                        HttpResponseException.parseRetryAfter(connection.getHeaderField(HttpResponseException.RETRY_AFTER)));
+            }
+        }
+        return decode(connection.getInputStream(), connection.getContentEncoding());
+    }
+
+    /**
+     * Wraps a response body; the bytes read are counted, a gzip compressed body is decompressed
+     * @param contentEncoding the value of the Content-Encoding header of the response, may be null
+     */
+    protected InputStream decode(InputStream body, String contentEncoding) throws IOException {
+        InputStream in = new CountingInputStream(body, bytesReceived);
+        if (GZIP.equalsIgnoreCase(contentEncoding)) {
+            return new CountingInputStream(new GZIPInputStream(in, 8192), bytesDecoded);
+        }
+        return new CountingInputStream(in, bytesDecoded);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final LongAdder counter;
+
+        CountingInputStream(InputStream in, LongAdder counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            counter.add(skipped);
+            return skipped;
+        }
+    }
+
 }
@@ -65,10 +65,10 @@ public class CertificateStreamProvider extends BaseStreamProvider {
                 log.fine(String.format("Using URLConnection for url [%s].", url));
             }
         }
-        return connection.getInputStream();
+        return getInputStream(connection);
     }
 
-    private static KeyManager[] configureClientCert(String clientCertFile, String clientKeyFile, char[] clientKeyPassword, String clientKeyAlgo) throws Exception {
+    static KeyManager[] configureClientCert(String clientCertFile, String clientKeyFile, char[] clientKeyPassword, String clientKeyAlgo) throws Exception {
         try (InputStream certInputStream = openFile(clientCertFile);
              InputStream keyInputStream = openFile(clientKeyFile)) {
             CertificateFactory certFactory = CertificateFactory.getInstance("X509");
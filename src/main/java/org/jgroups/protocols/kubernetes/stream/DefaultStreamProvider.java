@@ -18,7 +18,7 @@ public class DefaultStreamProvider extends BaseStreamProvider {
         if (log.isLoggable(Level.FINE)) {
             log.fine(String.format("Using URLConnection for url [%s].", url));
         }
-        return connection.getInputStream();
+        return getInputStream(connection);
     }
 
 }
@@ -0,0 +1,189 @@
+package org.jgroups.protocols.kubernetes.stream;
+
+import static org.jgroups.protocols.kubernetes.stream.CertificateStreamProvider.configureClientCert;
+import static org.jgroups.protocols.kubernetes.stream.TokenStreamProvider.AUTHORIZATION;
+import static org.jgroups.protocols.kubernetes.stream.TokenStreamProvider.configureCaCert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+
+import org.jgroups.protocols.kubernetes.Utils;
+
+/**
+ * Stream provider based on {@link HttpClient}. Unlike the {@link java.net.URLConnection} based providers, a single
+ * long-lived client is used for all requests: connections to the API server are pooled and reused, and with HTTP/2
+ * (negotiated via ALPN on TLS connections) concurrent requests are multiplexed over a single connection.
+ * <p>
+ * Authenticates either with a service account token (like {@link TokenStreamProvider}) or with a client certificate
+ * (like {@link CertificateStreamProvider}).
+ * <p>
+ * The connect timeout is set when the provider is created, as it applies to all connections of the client; the
+ * connect timeout passed to {@link #openStream(String, Map, int, int)} is ignored. The read timeout bounds the wait
+ * for the response headers and every read of the response body. The client is closed by {@link #close()}.
+ */
+public class HttpClientStreamProvider extends BaseStreamProvider {
+    private static final Logger log = Logger.getLogger(HttpClientStreamProvider.class.getName());
+
+    private final ServiceAccountToken saToken; // null when authenticating with a client certificate
+    private final HttpClient client;
+
+    /**
+     * @param connectTimeout the connect timeout in ms, 0 for the default (no timeout)
+     */
+    protected HttpClientStreamProvider(SSLContext context, ServiceAccountToken saToken, int connectTimeout) {
+        if (connectTimeout < 0) {
+            throw new IllegalArgumentException(String.format("connectTimeout [%s] cannot be less than 0 for HttpClient.", connectTimeout));
+        }
+        this.saToken = saToken;
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .sslContext(context);
+        if (connectTimeout > 0) {
+            builder.connectTimeout(Duration.ofMillis(connectTimeout));
+        }
+        this.client = builder.build();
+    }
+
+    /**
+     * Creates a provider which authenticates with the service account token read from saTokenFile, without a connect
+     * timeout
+     */
+    public static HttpClientStreamProvider withToken(String saTokenFile, String caCertFile) throws Exception {
+        return withToken(saTokenFile, caCertFile, 0);
+    }
+
+    /**
+     * Creates a provider which authenticates with the service account token read from saTokenFile
+     * @param connectTimeout the connect timeout in ms, 0 for no timeout
+     */
+    public static HttpClientStreamProvider withToken(String saTokenFile, String caCertFile, int connectTimeout) throws Exception {
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, configureCaCert(caCertFile), null);
+        return new HttpClientStreamProvider(context, new ServiceAccountToken(saTokenFile), connectTimeout);
+    }
+
+    /**
+     * Creates a provider which authenticates with a client certificate, without a connect timeout
+     */
+    public static HttpClientStreamProvider withClientCertificate(String clientCertFile, String clientKeyFile, String clientKeyPassword,
+                                                                 String clientKeyAlgo, String caCertFile) throws Exception {
+        return withClientCertificate(clientCertFile, clientKeyFile, clientKeyPassword, clientKeyAlgo, caCertFile, 0);
+    }
+
+    /**
+     * Creates a provider which authenticates with a client certificate
+     * @param connectTimeout the connect timeout in ms, 0 for no timeout
+     */
+    public static HttpClientStreamProvider withClientCertificate(String clientCertFile, String clientKeyFile, String clientKeyPassword,
+                                                                 String clientKeyAlgo, String caCertFile, int connectTimeout) throws Exception {
+        // defaults - RSA and empty password
+        char[] password = (clientKeyPassword != null) ? clientKeyPassword.toCharArray() : new char[0];
+        String algorithm = (clientKeyAlgo != null) ? clientKeyAlgo : "RSA";
+
+        KeyManager[] keyManagers = configureClientCert(clientCertFile, clientKeyFile, password, algorithm);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers, configureCaCert(caCertFile), null);
+        return new HttpClientStreamProvider(context, null, connectTimeout);
+    }
+
+    @Override
+    public InputStream openStream(String url, Map<String, String> headers, int connectTimeout, int readTimeout) throws IOException {
+        if (connectTimeout < 0 || readTimeout < 0) {
+            throw new IllegalArgumentException(
+                String.format("Neither connectTimeout [%s] nor readTimeout [%s] can be less than 0 for HttpClient.", connectTimeout, readTimeout));
+        }
+        if (log.isLoggable(Level.FINE)) {
+            log.log(Level.FINE, String.format("%s sending request: url [%s], headers [%s], connectTimeout [%s], readTimeout [%s]",
+                    getClass().getSimpleName(), url, Utils.sanitizeHttpHeaders(headers), connectTimeout, readTimeout));
+        }
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url)).GET();
+        if (readTimeout > 0) {
+            // bounds the time until the response headers are received; a watch streams its body for much longer
+            request.timeout(Duration.ofMillis(readTimeout));
+        }
+        boolean acceptEncoding = false;
+        if (headers != null) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                request.header(entry.getKey(), entry.getValue());
+                acceptEncoding |= ACCEPT_ENCODING.equalsIgnoreCase(entry.getKey());
+            }
+        }
+        if (saToken != null) {
+            String token = saToken.get();
+            if (token != null) {
+                request.setHeader(AUTHORIZATION, "Bearer " + token);
+            }
+        }
+        if (isCompression() && !acceptEncoding) {
+            request.header(ACCEPT_ENCODING, GZIP);
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted while waiting for the response from %s", url));
+        }
+
+        int responseCode = response.statusCode();
+        if (responseCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+            // drain the body so that the connection can be reused
+            try (InputStream body = response.body()) {
+                body.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException ignore) {
+            }
+            if (responseCode == HttpURLConnection.HTTP_UNAUTHORIZED && saToken != null) {
+                saToken.refresh();
+                throw new HttpResponseException(responseCode, "Received HTTP 401 Unauthorized from Kubernetes API server; token refreshed for retry");
+            }
+            throw new HttpResponseException(responseCode, String.format("Server returned HTTP response code: %d for URL: %s", responseCode, url),
+                    HttpResponseException.parseRetryAfter(response.headers().firstValue(HttpResponseException.RETRY_AFTER).orElse(null)));
+        }
+        if (log.isLoggable(Level.FINE)) {
+            log.fine(String.format("Received response for url [%s] over %s.", url, response.version()));
+        }
+        // reads from the body have no timeout of their own
+        InputStream body = readTimeout > 0 ? new ReadTimeoutInputStream(response.body(), readTimeout) : response.body();
+        return decode(body, response.headers().firstValue("Content-Encoding").orElse(null));
+    }
+
+    protected HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * Closes the client and its connections (on Java 21 and later, where HttpClient can be closed; on earlier
+     * versions, the client's resources are released when it is garbage collected)
+     */
+    @Override
+    public void close() {
+        if (client instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) client).close();
+            } catch (Exception e) {
+                log.log(Level.FINE, "failed closing HttpClient", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s(%s)", getClass().getSimpleName(), saToken != null ? "token" : "client certificate");
+    }
+}
@@ -0,0 +1,96 @@
+package org.jgroups.protocols.kubernetes.stream;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Thrown by a {@link StreamProvider} when the server answers with an HTTP error status.
+ */
+public class HttpResponseException extends IOException {
+    private static final long serialVersionUID = 3925183637283547071L;
+
+    public static final String RETRY_AFTER = "Retry-After";
+
+    private final int responseCode;
+    private final long retryAfter;
+
+    public HttpResponseException(int responseCode, String message) {
+        this(responseCode, message, -1);
+    }
+
+    /**
+     * @param retryAfter the time in ms after which the server asked to retry the request (Retry-After header), or
+     *                   -1 if the server didn't send one
+     */
+    public HttpResponseException(int responseCode, String message, long retryAfter) {
+        super(message);
+        this.responseCode = responseCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return the HTTP status code, e.g. 410
+     */
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    /**
+     * @return the time in ms after which the request may be retried as requested by the server, or -1
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Returns the response code of the first {@link HttpResponseException} in the cause chain of t
+     * @return the response code, or -1 if t wasn't caused by an HTTP error status
+     */
+    public static int getResponseCode(Throwable t) {
+        HttpResponseException e = find(t);
+        return e != null ? e.getResponseCode() : -1;
+    }
+
+    /**
+     * Returns the Retry-After time of the first {@link HttpResponseException} in the cause chain of t
+     * @return the time in ms, or -1 if t wasn't caused by an HTTP error status with a Retry-After header
+     */
+    public static long getRetryAfter(Throwable t) {
+        HttpResponseException e = find(t);
+        return e != null ? e.getRetryAfter() : -1;
+    }
+
+    private static HttpResponseException find(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException) {
+                return (HttpResponseException) cause;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Parses the value of a Retry-After header, which is either a number of seconds or an HTTP date
+     * @return the time to wait in ms, or -1 if value is null or invalid
+     */
+    public static long parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(Long.parseLong(value), 0) * 1000;
+        } catch (NumberFormatException ignore) {
+        }
+        try {
+            Instant date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(Duration.between(Instant.now(), date).toMillis(), 0);
+        } catch (DateTimeParseException ignore) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.jgroups.protocols.kubernetes.stream;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a read timeout on a stream which has none, such as the body of an {@link java.net.http.HttpClient}
+ * response: if a read blocks for longer than the timeout, the stream is closed and the read fails with a
+ * {@link SocketTimeoutException}, like a read from an {@link java.net.HttpURLConnection} with a read timeout.
+ * <p>
+ * Reads are checked periodically (every half timeout), so a read times out after 1 to 1.5 times the timeout. The
+ * checks stop when the stream is closed, has reached EOF or has timed out; they only hold a weak reference to the
+ * stream, so a stream which is never closed can still be garbage collected, which also stops the checks.
+ */
+class ReadTimeoutInputStream extends FilterInputStream {
+    private final long timeout; // in ms
+    private volatile long readStart; // time (ns) at which the current read started, 0 if no read is in progress
+    private volatile boolean closed, timedOut; // closed: closed or at EOF, no more checks needed
+
+    ReadTimeoutInputStream(InputStream in, long timeout) {
+        super(in);
+        this.timeout = timeout;
+        scheduleCheck(new WeakReference<>(this), Math.max(timeout / 2, 1));
+    }
+
+    @Override
+    public int read() throws IOException {
+        beforeRead();
+        try {
+            return afterRead(super.read());
+        } catch (IOException e) {
+            throw timedOut ? timeoutException() : e;
+        } finally {
+            readStart = 0;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        beforeRead();
+        try {
+            return afterRead(super.read(b, off, len));
+        } catch (IOException e) {
+            throw timedOut ? timeoutException() : e;
+        } finally {
+            readStart = 0;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        beforeRead();
+        try {
+            long skipped = super.skip(n);
+            afterRead(0);
+            return skipped;
+        } catch (IOException e) {
+            throw timedOut ? timeoutException() : e;
+        } finally {
+            readStart = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        super.close();
+    }
+
+    private void beforeRead() throws IOException {
+        if (timedOut) {
+            throw timeoutException();
+        }
+        readStart = System.nanoTime();
+    }
+
+    private int afterRead(int result) throws IOException {
+        // a stream closed by check() may return EOF instead of failing
+        if (timedOut) {
+            throw timeoutException();
+        }
+        if (result < 0) {
+            closed = true;
+        }
+        return result;
+    }
+
+    private SocketTimeoutException timeoutException() {
+        return new SocketTimeoutException(String.format("Read timed out after %d ms", timeout));
+    }
+
+    // static, so that the scheduled task doesn't keep the stream reachable
+    private static void scheduleCheck(WeakReference<ReadTimeoutInputStream> ref, long interval) {
+        CompletableFuture.delayedExecutor(interval, TimeUnit.MILLISECONDS).execute(() -> {
+            ReadTimeoutInputStream stream = ref.get();
+            if (stream != null && stream.check()) {
+                scheduleCheck(ref, interval);
+            }
+        });
+    }
+
+    /**
+     * @return true if the stream needs to be checked again, false if it is closed, at EOF or has timed out
+     */
+    private boolean check() {
+        if (closed || timedOut) {
+            return false;
+        }
+        long start = readStart;
+        if (start != 0 && System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(timeout)) {
+            timedOut = true;
+            try {
+                in.close(); // unblocks the read
+            } catch (IOException ignore) {
+            }
+            return false;
+        }
+        return true;
+    }
+}
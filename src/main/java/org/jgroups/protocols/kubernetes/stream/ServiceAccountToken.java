@@ -0,0 +1,61 @@
+package org.jgroups.protocols.kubernetes.stream;
+
+import static org.jgroups.protocols.kubernetes.Utils.readFileToString;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service account token read from a file. The token is re-read periodically, as projected service account tokens
+ * are rotated by the kubelet.
+ * Token refresh is modeled after approach in {@literal io.fabric8.kubernetes.client.utils.TokenRefreshInterceptor}.
+ *
+ * @author Radoslav Husar
+ */
+class ServiceAccountToken {
+
+    private static final Logger log = Logger.getLogger(ServiceAccountToken.class.getName());
+
+    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(1);
+
+    private final String saTokenFile;
+    private volatile String cachedSaToken;
+    private volatile Instant lastSaTokenRefreshTimestamp = Instant.MIN;
+
+    ServiceAccountToken(String saTokenFile) {
+        this.saTokenFile = saTokenFile;
+    }
+
+    /**
+     * @return the token, re-read from the file if the refresh interval has elapsed; null if there is no token
+     */
+    String get() {
+        if (isTimeToRefresh()) {
+            refresh();
+        }
+        return cachedSaToken;
+    }
+
+    private boolean isTimeToRefresh() {
+        return lastSaTokenRefreshTimestamp.plus(REFRESH_INTERVAL).isBefore(Instant.now());
+    }
+
+    synchronized void refresh() {
+        try {
+            String token = readFileToString(saTokenFile);
+            cachedSaToken = token != null ? token.trim() : null;
+            lastSaTokenRefreshTimestamp = Instant.now();
+            log.fine(String.format("Refreshed service account token from file '%s'.", saTokenFile));
+        } catch (IOException e) {
+            log.log(Level.WARNING, String.format("Failed to refresh service account token from file '%s'.", saTokenFile), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return saTokenFile;
+    }
+}
@@ -28,4 +28,10 @@ public interface StreamProvider {
 
     InputStream openStream(String url, Map<String,String> headers, int connectTimeout, int readTimeout) throws IOException;
 
+    /**
+     * Releases the resources of the provider, e.g. pooled connections. The provider must not be used afterwards.
+     */
+    default void close() {
+    }
+
 }
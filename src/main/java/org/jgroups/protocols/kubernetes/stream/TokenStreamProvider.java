@@ -1,7 +1,6 @@
 package org.jgroups.protocols.kubernetes.stream;
 
 import static org.jgroups.protocols.kubernetes.Utils.openFile;
-import static org.jgroups.protocols.kubernetes.Utils.readFileToString;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -17,9 +16,8 @@ import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
-import java.time.Duration;
-import java.time.Instant;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -37,30 +35,25 @@ public class TokenStreamProvider extends BaseStreamProvider {
     private static final Logger log = Logger.getLogger(TokenStreamProvider.class.getName());
 
     private final String caCertFile;
-    private final String saTokenFile;
-    private volatile String cachedSaToken;
-    private volatile Instant lastSaTokenRefreshTimestamp = Instant.MIN;
-    private static final Duration REFRESH_INTERVAL = Duration.ofMinutes(1);
+    private final ServiceAccountToken saToken;
 
     public static final String AUTHORIZATION = "Authorization";
 
     private volatile SSLSocketFactory factory;
 
     public TokenStreamProvider(String saTokenFile, String caCertFile) {
-        this.saTokenFile = saTokenFile;
+        this.saToken = new ServiceAccountToken(saTokenFile);
         this.caCertFile = caCertFile;
     }
 
     @Override
     public InputStream openStream(String url, Map<String, String> headers, int connectTimeout, int readTimeout) throws IOException {
-        if (isTimeToRefresh()) {
-            refreshToken();
-        }
-
-        String token = cachedSaToken;
+        String token = saToken.get();
         if (token != null) {
             // curl -k -H "Authorization: Bearer $(cat /var/run/secrets/kubernetes.io/serviceaccount/token)" \
             // https://172.30.0.2:443/api/v1/namespaces/dward/pods?labelSelector=application%3Deap-app
+            // a copy, as the caller's headers may be shared by concurrent requests
+            headers = headers != null ? new HashMap<>(headers) : new HashMap<>();
             headers.put(AUTHORIZATION, "Bearer " + token);
         }
 
@@ -82,27 +75,12 @@ public class TokenStreamProvider extends BaseStreamProvider {
         if (connection instanceof HttpURLConnection) {
             int responseCode = ((HttpURLConnection) connection).getResponseCode();
             if (responseCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
-                refreshToken();
-                throw new IOException("Received HTTP 401 Unauthorized from Kubernetes API server; token refreshed for retry");
+                saToken.refresh();
+                throw new HttpResponseException(responseCode, "Received HTTP 401 Unauthorized from Kubernetes API server; token refreshed for retry");
             }
         }
 
-        return connection.getInputStream();
-    }
-
-    private boolean isTimeToRefresh() {
-        return lastSaTokenRefreshTimestamp.plus(REFRESH_INTERVAL).isBefore(Instant.now());
-    }
-
-    private synchronized void refreshToken() {
-        try {
-            String token = readFileToString(saTokenFile);
-            cachedSaToken = token != null ? token.trim() : null;
-            lastSaTokenRefreshTimestamp = Instant.now();
-            log.fine(String.format("Refreshed service account token from file '%s'.", saTokenFile));
-        } catch (IOException e) {
-            log.log(Level.WARNING, String.format("Failed to refresh service account token from file '%s'.", saTokenFile), e);
-        }
+        return getInputStream(connection);
     }
 
     static TrustManager[] configureCaCert(String caCertFile) throws Exception {
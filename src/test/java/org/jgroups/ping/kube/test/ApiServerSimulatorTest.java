@@ -0,0 +1,303 @@
+package org.jgroups.ping.kube.test;
+
+import static org.jgroups.ping.kube.test.util.FreePortFinder.findFreePort;
+
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.JChannel;
+import org.jgroups.logging.LogFactory;
+import org.jgroups.ping.kube.test.util.KubernetesApiSimulator;
+import org.jgroups.ping.kube.test.util.KubernetesApiSimulator.Fault;
+import org.jgroups.protocols.TCP;
+import org.jgroups.protocols.kubernetes.Client;
+import org.jgroups.protocols.kubernetes.ClientStats;
+import org.jgroups.protocols.kubernetes.KUBE_PING;
+import org.jgroups.protocols.kubernetes.Pod;
+import org.jgroups.protocols.kubernetes.PodWatcher;
+import org.jgroups.protocols.kubernetes.RateLimiter;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+import org.jgroups.protocols.kubernetes.stream.HttpClientStreamProvider;
+import org.jgroups.protocols.kubernetes.stream.StreamProvider;
+import org.jgroups.protocols.kubernetes.stream.TokenStreamProvider;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.util.DefaultThreadFactory;
+import org.jgroups.util.Util;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the client and the stream providers end to end, against {@link KubernetesApiSimulator}.
+ */
+public class ApiServerSimulatorTest {
+
+    private static final Map<String, String> LABELS = Map.of("app", "test");
+
+    private KubernetesApiSimulator api;
+
+    @Before
+    public void startApiServer() throws Exception {
+        api = KubernetesApiSimulator.start();
+        api.addPods("ns", 100, LABELS);
+        api.addPod("ns", "other", "10.1.0.1", Map.of("app", "other"), true);
+    }
+
+    @After
+    public void stopApiServer() throws Exception {
+        api.close();
+    }
+
+    @Test
+    public void testListPodsOverHttps() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 1);
+
+        //when
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(pods.get(0).getIp()).isEqualTo("10.0.0.0");
+        Assertions.assertThat(pods).allMatch(Pod::isReady);
+    }
+
+    @Test
+    public void testPagesAreFetchedOverHttpClient() throws Exception {
+        //given
+        Client client = client(HttpClientStreamProvider.withToken(api.getTokenFile(), api.getCaCertFile()), 1).setPageSize(30);
+
+        //when
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(api.getRequests()).isEqualTo(4);
+    }
+
+    @Test
+    public void testServerErrorsAreRetried() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 3);
+        api.inject(Fault.status(500), Fault.status(503));
+
+        //when
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(api.getRequests()).isEqualTo(3);
+    }
+
+    @Test
+    public void testRetryAfterIsHonored() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 2);
+        api.inject(Fault.tooManyRequests(1));
+
+        //when
+        long start = System.nanoTime();
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(time).isGreaterThanOrEqualTo(1000);
+    }
+
+    @Test
+    public void testRetryAfterPausesSubsequentRequests() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 1)
+                .setRateLimiter(new RateLimiter(0, 1, 0));
+        api.inject(Fault.tooManyRequests(1));
+        Assertions.assertThatThrownBy(() -> client.getPods("ns", "app=test", false))
+                .hasRootCauseInstanceOf(HttpResponseException.class);
+
+        //when
+        long start = System.nanoTime();
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+        long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(time).isGreaterThanOrEqualTo(500);
+        Assertions.assertThat(api.getRequests()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRequestsAreCounted() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 3);
+        api.inject(Fault.status(503), Fault.tooManyRequests(0));
+
+        //when
+        client.getPods("ns", "app=test", false);
+
+        //then
+        ClientStats stats = client.getStats();
+        Assertions.assertThat(stats.getRequests()).isEqualTo(3);
+        Assertions.assertThat(stats.getFailuresByCause()).isEqualTo("http-429=1, http-503=1");
+        Assertions.assertThat(stats.getRequestTimes().count()).isEqualTo(1);
+        Assertions.assertThat(stats.getParseTimes().count()).isEqualTo(1);
+        Assertions.assertThat(stats.getLastSuccess()).isPositive();
+    }
+
+    @Test
+    public void testTokenIsRefreshedOnUnauthorized() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 2);
+        client.getPods("ns", "app=test", false);
+        api.rotateToken("rotated-token");
+
+        //when
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(api.getRequests()).isEqualTo(3);
+    }
+
+    @Test
+    public void testTruncatedBodyIsRetried() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 2);
+        api.inject(Fault.truncated());
+
+        //when
+        List<Pod> pods = client.getPods("ns", "app=test", false);
+
+        //then
+        Assertions.assertThat(pods).hasSize(100);
+        Assertions.assertThat(api.getRequests()).isEqualTo(2);
+    }
+
+    @Test
+    public void testSlowDripRunsIntoReadTimeout() throws Exception {
+        assertSlowDripRunsIntoReadTimeout(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()));
+    }
+
+    @Test
+    public void testSlowDripRunsIntoReadTimeoutWithHttpClient() throws Exception {
+        assertSlowDripRunsIntoReadTimeout(HttpClientStreamProvider.withToken(api.getTokenFile(), api.getCaCertFile(), 1000));
+    }
+
+    private void assertSlowDripRunsIntoReadTimeout(StreamProvider streamProvider) throws Exception {
+        //given
+        Client client = new Client(api.getUrl(), new HashMap<>(), 1000, 200, 1, 0,
+                streamProvider, LogFactory.getLog(ApiServerSimulatorTest.class));
+        // warms up the connection with a longer read timeout, so that the response headers arrive within the timeout
+        new Client(api.getUrl(), new HashMap<>(), 1000, 2000, 1, 0, streamProvider,
+                LogFactory.getLog(ApiServerSimulatorTest.class)).getPods("ns", "app=test", false);
+        api.inject(Fault.slowDrip(64, 500));
+
+        //when //then
+        try {
+            Assertions.assertThatThrownBy(() -> client.getPods("ns", "app=test", false))
+                    .hasRootCauseInstanceOf(SocketTimeoutException.class);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void testWatchStreamsChanges() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 1);
+        PodWatcher watcher = new PodWatcher(client, "ns", "app=test", 60, 100, LogFactory.getLog(ApiServerSimulatorTest.class));
+        watcher.start(new DefaultThreadFactory("watcher", true));
+        try {
+            Util.waitUntil(5000, 10, () -> watcher.isSynced() && watcher.getPods().size() == 100);
+
+            //when
+            api.addPod("ns", "new", "10.2.0.1", LABELS, true);
+            api.setReady("ns", "pod-0", false);
+            api.deletePod("ns", "pod-1");
+            api.addPod("ns", "ignored", "10.2.0.2", Map.of("app", "other"), true);
+
+            //then
+            Util.waitUntil(5000, 10, () -> watcher.getPods().size() == 100
+                    && watcher.getPods().stream().anyMatch(p -> "new".equals(p.getName()))
+                    && watcher.getPods().stream().anyMatch(p -> "pod-0".equals(p.getName()) && !p.isReady()));
+            Assertions.assertThat(watcher.getPods()).noneMatch(p -> "pod-1".equals(p.getName()) || "ignored".equals(p.getName()));
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void testWatchIsResumedWithListAfterCompaction() throws Exception {
+        //given
+        Client client = client(new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), 1);
+        PodWatcher watcher = new PodWatcher(client, "ns", "app=test", 1, 100, LogFactory.getLog(ApiServerSimulatorTest.class));
+        api.compact();
+        api.addPod("ns", "new", "10.2.0.1", LABELS, true);
+        api.compact();
+        watcher.start(new DefaultThreadFactory("watcher", true));
+        try {
+            //when
+            Util.waitUntil(5000, 10, () -> watcher.isSynced() && api.getWatches() > 0);
+            api.compact();
+            api.addPod("ns", "newer", "10.2.0.2", LABELS, true);
+
+            //then
+            Util.waitUntil(10000, 10, () -> watcher.getPods().stream().anyMatch(p -> "newer".equals(p.getName())));
+            Assertions.assertThat(watcher.getPods()).hasSize(102);
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void testDiscoveryThroughApiServer() throws Exception {
+        //given
+        // every pod binds to the same port, on its own IP address
+        int port = findFreePort();
+        api.addPod("ns", "a", "127.0.0.1", Map.of("app", "local"), true);
+        api.addPod("ns", "b", "127.0.0.2", Map.of("app", "local"), true);
+        api.setLatency(50, TimeUnit.MILLISECONDS);
+
+        //when
+        try (JChannel a = channel("127.0.0.1", port); JChannel b = channel("127.0.0.2", port)) {
+            a.connect("ApiServerSimulatorTest");
+            b.connect("ApiServerSimulatorTest");
+
+            //then
+            Util.waitUntilAllChannelsHaveSameView(10000, 100, a, b);
+            Assertions.assertThat(a.getView().size()).isEqualTo(2);
+            KUBE_PING ping = b.getProtocolStack().findProtocol(KUBE_PING.class);
+            Assertions.assertThat(ping.getApiRequests()).isPositive();
+            Assertions.assertThat(ping.getApiFailures()).isZero();
+            Assertions.assertThat(ping.getPodCount()).isEqualTo(2);
+            Assertions.assertThat(ping.getReadyPodCount()).isEqualTo(2);
+            Assertions.assertThat(ping.getTimeSinceLastFetch()).isNotNegative();
+        }
+    }
+
+    private JChannel channel(String ip, int port) throws Exception {
+        KUBE_PING ping = new KUBE_PING()
+                .setValue("masterHost", api.getHost())
+                .setValue("masterPort", api.getPort())
+                .setValue("namespace", "ns")
+                .setValue("labels", "app=local")
+                .setValue("saTokenFile", api.getTokenFile())
+                .setValue("caCertFile", api.getCaCertFile())
+                .setValue("port_range", 0);
+        return new JChannel(
+                new TCP().setValue("bind_addr", InetAddress.getByName(ip)).setValue("bind_port", port)
+                        .setValue("port_range", 0),
+                ping,
+                new NAKACK2(),
+                new GMS().setValue("join_timeout", 2000));
+    }
+
+    private Client client(StreamProvider streamProvider, int attempts) {
+        return new Client(api.getUrl(), new HashMap<>(), 1000, 5000, attempts, 10, streamProvider, LogFactory.getLog(ApiServerSimulatorTest.class));
+    }
+}
@@ -3,10 +3,29 @@ package org.jgroups.ping.kube.test;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import org.jgroups.logging.LogFactory;
 import org.jgroups.protocols.kubernetes.Client;
 import org.jgroups.protocols.kubernetes.Pod;
+import org.jgroups.protocols.kubernetes.PodList;
+import org.jgroups.protocols.kubernetes.RateLimiter;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+import org.jgroups.protocols.kubernetes.stream.StreamProvider;
+import org.jgroups.util.TimeScheduler;
+import org.jgroups.util.TimeScheduler3;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -61,5 +80,230 @@ public class ClientTest {
         assertEquals("6569c544b", podGroup);
     }
 
+    @Test
+    public void testEndpointSlices() throws Exception {
+        //given
+        Client client = new TestClient("/endpointslices.json", "endpointslices").setServiceName("infinispan-ping");
+
+        //when
+        PodList pods = client.listPods("myproject", null, false);
+
+        //then
+        assertEquals(List.of("127.0.0.1", "127.0.0.2", "127.0.0.3", "127.0.0.4"),
+                     pods.stream().map(Pod::getIp).collect(Collectors.toList()));
+        assertEquals(List.of(true, false, true, false),
+                     pods.stream().map(Pod::isReady).collect(Collectors.toList()));
+        assertEquals("infinispan-6569c544b-x2x8f", pods.get(0).getName());
+        assertEquals("infinispan-6569c544b", pods.get(0).getPodGroup());
+        assertEquals("infinispan-7d8f9c6b5", pods.get(2).getPodGroup());
+        assertEquals("5310", pods.getResourceVersion());
+    }
+
+    @Test
+    public void testEndpointSlicesOfStatefulSet() throws Exception {
+        //given
+        Client client = new TestClient("/endpointslices_statefulset.json", "endpointslices").setServiceName("infinispan-ping");
+
+        //when
+        PodList pods = client.listPods("myproject", null, false);
+
+        //then pods of all revisions have the same names, so their group can't be derived from the name
+        assertEquals(List.of("infinispan-0", "infinispan-1", "infinispan-2"),
+                     pods.stream().map(Pod::getName).collect(Collectors.toList()));
+        Assert.assertTrue(pods.stream().allMatch(p -> p.getPodGroup() == null));
+    }
+
+    @Test
+    public void testPagination() throws Exception {
+        //given
+        PagingClient client = new PagingClient(false);
+
+        //when
+        PodList pods = client.setPageSize(2).listPods("ns", "app=test", false);
+
+        //then
+        assertEquals(List.of("a", "b", "c"), pods.stream().map(Pod::getName).collect(Collectors.toList()));
+        assertEquals("100", pods.getResourceVersion());
+        assertEquals(2, client.urls.size());
+        Assert.assertTrue(client.urls.get(0).endsWith("?labelSelector=app%3Dtest&limit=2"));
+        Assert.assertTrue(client.urls.get(1).endsWith("?labelSelector=app%3Dtest&limit=2&continue=page2"));
+    }
+
+    @Test
+    public void testPaginationRestartsWhenContinueTokenExpired() throws Exception {
+        //given
+        PagingClient client = new PagingClient(true);
+
+        //when
+        PodList pods = client.setPageSize(2).listPods("ns", null, false);
+
+        //then
+        assertEquals(List.of("a", "b", "c"), pods.stream().map(Pod::getName).collect(Collectors.toList()));
+        assertEquals(4, client.urls.size());
+        Assert.assertFalse(client.urls.get(2).contains("continue="));
+    }
+
+    @Test
+    public void testListFromCache() throws Exception {
+        //given
+        PagingClient client = new PagingClient(false);
+        client.setListFromCache(true);
+
+        //when
+        client.listPods("ns", null, false);
+        client.listPods("ns", null, false);
 
+        //then
+        Assert.assertTrue(client.urls.get(0).endsWith("/pods?resourceVersion=0"));
+        Assert.assertTrue(client.urls.get(1).endsWith("/pods?resourceVersion=100&resourceVersionMatch=NotOlderThan"));
+        assertEquals("100", client.getLastResourceVersion());
+        Assert.assertTrue(client.getLastListTime() > 0);
+    }
+
+    @Test
+    public void testFieldSelector() throws Exception {
+        //given
+        PagingClient client = new PagingClient(false);
+        client.setFieldSelector("status.phase=Running,status.podIP!=");
+
+        //when
+        client.listPods("ns", "app=test", false);
+
+        //then
+        Assert.assertTrue(client.urls.get(0).endsWith("/pods?labelSelector=app%3Dtest&fieldSelector=status.phase%3DRunning%2Cstatus.podIP%21%3D"));
+    }
+
+    @Test
+    public void testConcurrentFetchesAreCoalesced() throws Exception {
+        //given
+        CountDownLatch requestSent = new CountDownLatch(1), responseReceived = new CountDownLatch(1);
+        PagingClient client = new PagingClient(false) {
+            @Override
+            protected InputStream openKubernetesStream(String url, String accept, int readTimeout) throws Exception {
+                requestSent.countDown();
+                responseReceived.await();
+                return super.openKubernetesStream(url, accept, readTimeout);
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            //when
+            Future<List<Pod>> first = executor.submit(() -> client.getPods("ns", null, false));
+            requestSent.await();
+            Future<List<Pod>> second = executor.submit(() -> client.getPods("ns", null, false));
+            while (client.getCoalescedCalls() == 0)
+                Thread.sleep(1);
+            responseReceived.countDown();
+
+            //then
+            assertEquals(List.of("a", "b"), first.get().stream().map(Pod::getName).collect(Collectors.toList()));
+            Assert.assertSame(first.get(), second.get());
+            assertEquals(1, client.urls.size());
+            assertEquals(1, client.getCoalescedCalls());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // a fetch after the previous one has completed sends a new request
+        client.getPods("ns", null, false);
+        assertEquals(2, client.urls.size());
+    }
+
+    @Test
+    public void testGetPodsAsyncRetriesOnTimer() throws Exception {
+        //given
+        AtomicInteger requests = new AtomicInteger();
+        PagingClient client = new PagingClient(false, 2, 10) {
+            @Override
+            protected InputStream openKubernetesStream(String url, String accept, int readTimeout) throws Exception {
+                if (requests.incrementAndGet() == 1)
+                    throw new HttpResponseException(503, "Service Unavailable");
+                return super.openKubernetesStream(url, accept, readTimeout);
+            }
+        };
+        TimeScheduler timer = new TimeScheduler3();
+
+        try {
+            //when
+            CompletableFuture<PodList> pods = client.getPodsAsync("ns", null, false, timer);
+
+            //then
+            assertEquals(List.of("a", "b"), pods.get(10, TimeUnit.SECONDS).stream().map(Pod::getName).collect(Collectors.toList()));
+            assertEquals(2, requests.get());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void testGetPodsAsyncReschedulesInsteadOfWaitingForRateLimiter() throws Exception {
+        //given
+        List<String> urls = new ArrayList<>();
+        StreamProvider pages = (url, headers, connectTimeout, readTimeout) -> {
+            synchronized (urls) {
+                urls.add(url);
+            }
+            String json = url.contains("continue=page2")
+                    ? "{\"metadata\":{\"resourceVersion\":\"100\"},\"items\":[" + PagingClient.pod("c") + "]}"
+                    : "{\"metadata\":{\"resourceVersion\":\"100\",\"continue\":\"page2\"},\"items\":[" + PagingClient.pod("a") + "]}";
+            return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        };
+        Client client = new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, pages, LogFactory.getLog(ClientTest.class))
+                .setPageSize(1).setRateLimiter(new RateLimiter(10, 1, 0)); // the 2nd page has to wait ~100 ms
+        AtomicInteger delayed = new AtomicInteger();
+        TimeScheduler timer = new TimeScheduler3() {
+            @Override
+            public Future<?> schedule(Runnable work, long delay, TimeUnit unit, boolean can_block) {
+                delayed.incrementAndGet();
+                return super.schedule(work, delay, unit, can_block);
+            }
+        };
+
+        try {
+            //when
+            CompletableFuture<PodList> pods = client.getPodsAsync("ns", null, false, timer);
+
+            //then
+            assertEquals(List.of("a", "c"), pods.get(10, TimeUnit.SECONDS).stream().map(Pod::getName).collect(Collectors.toList()));
+            assertEquals(2, urls.size()); // the list continued with the 2nd page
+            Assert.assertTrue(delayed.get() >= 1);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private static class PagingClient extends Client {
+        final List<String> urls = new ArrayList<>();
+        boolean expireContinueToken;
+
+        PagingClient(boolean expireContinueToken) {
+            this(expireContinueToken, 1, 0);
+        }
+
+        PagingClient(boolean expireContinueToken, int operationAttempts, long operationSleep) {
+            super("https://localhost:6443/api/v1", null, 0, 0, operationAttempts, operationSleep, null, LogFactory.getLog(ClientTest.class));
+            this.expireContinueToken = expireContinueToken;
+        }
+
+        @Override
+        protected InputStream openKubernetesStream(String url, String accept, int readTimeout) throws Exception {
+            urls.add(url);
+            String json;
+            if (url.contains("continue=page2")) {
+                if (expireContinueToken) {
+                    expireContinueToken = false;
+                    throw new HttpResponseException(410, "Gone");
+                }
+                json = "{\"metadata\":{\"resourceVersion\":\"100\"},\"items\":[" + pod("c") + "]}";
+            } else {
+                json = "{\"metadata\":{\"resourceVersion\":\"100\",\"continue\":\"page2\"},\"items\":[" + pod("a") + "," + pod("b") + "]}";
+            }
+            return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String pod(String name) {
+            return "{\"metadata\":{\"name\":\"" + name + "\"},\"status\":{\"podIP\":\"10.0.0.1\"}}";
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package org.jgroups.ping.kube.test;
+
+import static org.jgroups.ping.kube.test.util.FreePortFinder.findFreePort;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.jgroups.JChannel;
+import org.jgroups.logging.LogFactory;
+import org.jgroups.ping.kube.test.util.KubernetesApiSimulator;
+import org.jgroups.ping.kube.test.util.KubernetesApiSimulator.Fault;
+import org.jgroups.protocols.TCP;
+import org.jgroups.protocols.kubernetes.Client;
+import org.jgroups.protocols.kubernetes.KUBE_PING;
+import org.jgroups.protocols.kubernetes.stream.TokenStreamProvider;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the JFR events of requests to the API server, retries, parsing and discovery rounds
+ */
+public class FlightRecorderEventsTest {
+
+    private static final String API_REQUEST = "org.jgroups.kubernetes.ApiRequest", RETRY = "org.jgroups.kubernetes.Retry",
+            PARSE = "org.jgroups.kubernetes.Parse", DISCOVERY_ROUND = "org.jgroups.kubernetes.DiscoveryRound";
+
+    private KubernetesApiSimulator api;
+    private Recording recording;
+
+    @Before
+    public void start() throws Exception {
+        api = KubernetesApiSimulator.start();
+        api.addPods("ns", 100, Map.of("app", "test"));
+        recording = new Recording();
+        for (String event : List.of(API_REQUEST, RETRY, PARSE, DISCOVERY_ROUND))
+            recording.enable(event);
+        recording.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        recording.close();
+        api.close();
+    }
+
+    @Test
+    public void testRequestRetryAndParseEvents() throws Exception {
+        //given
+        Client client = new Client(api.getUrl(), new HashMap<>(), 1000, 5000, 2, 10,
+                new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), LogFactory.getLog(FlightRecorderEventsTest.class));
+        api.inject(Fault.status(503));
+
+        //when
+        client.getPods("ns", "app=test", false);
+
+        //then
+        Map<String, List<RecordedEvent>> events = events();
+        List<RecordedEvent> requests = events.get(API_REQUEST);
+        Assertions.assertThat(requests).hasSize(2);
+        Assertions.assertThat(requests.get(0).getInt("responseCode")).isEqualTo(503);
+        Assertions.assertThat(requests.get(0).getString("failure")).isEqualTo("http-503");
+        Assertions.assertThat(requests.get(1).getString("failure")).isNull();
+        Assertions.assertThat(requests.get(1).getString("url")).contains("/namespaces/ns/pods");
+        Assertions.assertThat(requests.get(1).getLong("bytes")).isPositive();
+
+        List<RecordedEvent> retries = events.get(RETRY);
+        Assertions.assertThat(retries).hasSize(1);
+        Assertions.assertThat(retries.get(0).getInt("attempt")).isEqualTo(1);
+        Assertions.assertThat(retries.get(0).getInt("attempts")).isEqualTo(2);
+        Assertions.assertThat(retries.get(0).getString("failure")).isEqualTo("http-503");
+
+        List<RecordedEvent> parses = events.get(PARSE);
+        Assertions.assertThat(parses).hasSize(1);
+        Assertions.assertThat(parses.get(0).getString("format")).isEqualTo("json-stream");
+        Assertions.assertThat(parses.get(0).getInt("pods")).isEqualTo(100);
+        Assertions.assertThat(parses.get(0).getLong("bytes")).isEqualTo(requests.get(1).getLong("bytes"));
+    }
+
+    @Test
+    public void testDiscoveryRoundEvent() throws Exception {
+        //given
+        api.addPod("ns", "a", "127.0.0.1", Map.of("app", "local"), true);
+        api.addPod("ns", "b", "127.0.0.2", Map.of("app", "local"), false);
+        int port = findFreePort();
+        KUBE_PING ping = new KUBE_PING()
+                .setValue("masterHost", api.getHost())
+                .setValue("masterPort", api.getPort())
+                .setValue("namespace", "ns")
+                .setValue("labels", "app=local")
+                .setValue("saTokenFile", api.getTokenFile())
+                .setValue("caCertFile", api.getCaCertFile())
+                .setValue("port_range", 0);
+
+        //when
+        try (JChannel channel = new JChannel(
+                new TCP().setValue("bind_addr", InetAddress.getByName("127.0.0.1")).setValue("bind_port", port),
+                ping,
+                new NAKACK2(),
+                new GMS().setValue("join_timeout", 100))) {
+            channel.connect("FlightRecorderEventsTest");
+        }
+
+        //then
+        List<RecordedEvent> rounds = events().get(DISCOVERY_ROUND);
+        Assertions.assertThat(rounds).isNotEmpty();
+        RecordedEvent round = rounds.get(0);
+        Assertions.assertThat(round.getString("cluster")).isEqualTo("FlightRecorderEventsTest");
+        Assertions.assertThat(round.getBoolean("initialDiscovery")).isTrue();
+        Assertions.assertThat(round.getInt("pods")).isEqualTo(2);
+        Assertions.assertThat(round.getInt("readyPods")).isEqualTo(1);
+        Assertions.assertThat(round.getInt("targets")).isEqualTo(1); // pod b; a is the local pod
+    }
+
+    private Map<String, List<RecordedEvent>> events() throws Exception {
+        recording.stop();
+        Path file = Files.createTempFile("kube_ping", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+                    .collect(Collectors.groupingBy(e -> e.getEventType().getName()));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
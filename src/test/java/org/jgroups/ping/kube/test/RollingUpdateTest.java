@@ -6,15 +6,21 @@ import org.jgroups.Message;
 import org.jgroups.protocols.TCP;
 import org.jgroups.protocols.kubernetes.KUBE_PING;
 import org.jgroups.protocols.kubernetes.Pod;
+import org.jgroups.protocols.kubernetes.PodList;
 import org.jgroups.protocols.pbcast.GMS;
 import org.jgroups.protocols.pbcast.NAKACK2;
 import org.jgroups.stack.IpAddress;
+import org.jgroups.util.Util;
 import org.junit.Test;
 
 import java.net.InetAddress;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.jgroups.ping.kube.test.util.FreePortFinder.findFreePort;
@@ -77,6 +83,126 @@ public class RollingUpdateTest {
       testPutOnlyNodesWithTheSameParentDuringRollingUpdate(testedProtocol);
    }
 
+   @Test
+   public void testPutOnlyNodesWithTheSameParentDuringRollingUpdateEndpointSlices() throws Exception {
+      //given
+      KUBE_PING_FOR_TESTING testedProtocol = new KUBE_PING_FOR_TESTING("/endpointslices.json", "infinispan-ping");
+      testedProtocol.setValue("split_clusters_during_rolling_update", true);
+
+      //when //then
+      testPutOnlyNodesWithTheSameParentDuringRollingUpdate(testedProtocol);
+   }
+
+   @Test
+   public void testStatefulSetEndpointSlicesAreNotSplit() throws Exception {
+      //given
+      KUBE_PING_FOR_TESTING testedProtocol = new KUBE_PING_FOR_TESTING("/endpointslices_statefulset.json", "infinispan-ping");
+      testedProtocol.setValue("split_clusters_during_rolling_update", true);
+
+      //when
+      sendInitialDiscovery(testedProtocol);
+      Set<String> membersUsedForDiscovery = testedProtocol.getCollectedMessages().stream()
+            .map(e -> ((IpAddress)e.getDest()).getIpAddress().getHostAddress())
+            .collect(Collectors.toSet());
+
+      //then the revision of StatefulSet pods is unknown, so all of them are placed in the same cluster
+      Assertions.assertThat(testedProtocol.getPods()).extracting(Pod::getPodGroup).containsOnlyNulls();
+      Assertions.assertThat(membersUsedForDiscovery).containsExactlyInAnyOrder("127.0.0.1", "127.0.0.2", "127.0.0.3");
+   }
+
+   @Test
+   public void testDiscoveryRequestsShareOnePayload() throws Exception {
+      //given
+      KUBE_PING_FOR_TESTING testedProtocol = new KUBE_PING_FOR_TESTING("/openshift_rolling_update.json");
+      testedProtocol.setValue("port_range", 3);
+
+      //when
+      sendInitialDiscovery(testedProtocol);
+      List<Message> requests = testedProtocol.getCollectedMessages();
+
+      //then
+      Assertions.assertThat(requests).hasSizeGreaterThan(1);
+      Assertions.assertThat(requests).allSatisfy(req -> {
+         Assertions.assertThat(req.getArray()).isSameAs(requests.get(0).getArray());
+         Assertions.assertThat(req.getHeaders().values()).containsExactlyElementsOf(requests.get(0).getHeaders().values());
+      });
+   }
+
+   @Test
+   public void testPodsOfLateFetchAreNotPingedOnCompletingThread() throws Exception {
+      //given
+      CompletableFuture<PodList> fetch = new CompletableFuture<>();
+      Set<Thread> senders = ConcurrentHashMap.newKeySet();
+      KUBE_PING_FOR_TESTING testedProtocol = new KUBE_PING_FOR_TESTING("/openshift_rolling_update.json") {
+         @Override
+         public void init() throws Exception {
+            super.init();
+            last_pods = PodList.EMPTY; // known pods: the rounds ping them and then wait for the fetch
+         }
+
+         @Override
+         protected CompletableFuture<PodList> readAllAsync() {
+            return fetch;
+         }
+
+         @Override
+         protected void sendDiscoveryRequest(Message req) {
+            senders.add(Thread.currentThread());
+            super.sendDiscoveryRequest(req);
+         }
+      };
+      testedProtocol.setValue("port_range", 0);
+
+      try (JChannel channel = new JChannel(
+            new TCP().setValue("bind_addr", InetAddress.getLoopbackAddress()).setValue("bind_port", findFreePort()),
+            testedProtocol,
+            new NAKACK2(),
+            new GMS().setValue("join_timeout", 1))) {
+         channel.connect("RollingUpdateTest");
+
+         //when the fetch is completed by another thread (a timer thread in production)
+         fetch.complete(new PodList(testedProtocol.getPods(), null));
+
+         //then
+         Util.waitUntil(5000, 10, () -> !testedProtocol.getCollectedMessages().isEmpty());
+         Assertions.assertThat(senders).doesNotContain(Thread.currentThread());
+      }
+   }
+
+   @Test
+   public void testSlowPodDoesNotDelayOtherPods() throws Exception {
+      //given
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch otherPodsPinged = new CountDownLatch(3);
+      KUBE_PING_FOR_TESTING testedProtocol = new KUBE_PING_FOR_TESTING("/openshift_rolling_update.json") {
+         @Override
+         protected void sendDiscoveryRequest(Message req) {
+            try {
+               if ("172.17.0.8".equals(((IpAddress) req.getDest()).getIpAddress().getHostAddress()))
+                  release.await(10, TimeUnit.SECONDS); // e.g. a TCP connect to an unreachable pod
+               else
+                  otherPodsPinged.countDown();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+            }
+         }
+      };
+      testedProtocol.setValue("port_range", 0).setValue("send_concurrency", 2);
+
+      //when
+      try (JChannel channel = new JChannel(
+            new TCP().setValue("bind_addr", InetAddress.getLoopbackAddress()).setValue("bind_port", findFreePort()),
+            testedProtocol,
+            new NAKACK2(),
+            new GMS().setValue("join_timeout", 1))) {
+         channel.connect("RollingUpdateTest");
+
+         //then
+         Assertions.assertThat(otherPodsPinged.await(5, TimeUnit.SECONDS)).isTrue();
+         release.countDown();
+      }
+   }
+
    private void testPutOnlyNodesWithTheSameParentDuringRollingUpdate(KUBE_PING_FOR_TESTING testedProtocol) throws Exception {
       //when
       sendInitialDiscovery(testedProtocol);
@@ -108,17 +234,24 @@ public class RollingUpdateTest {
    static class KUBE_PING_FOR_TESTING extends KUBE_PING {
 
       private final String resourceFile;
-      private final List<Message> collectedMessages = new ArrayList<>();
+      private final String serviceName;
+      private final List<Message> collectedMessages = new CopyOnWriteArrayList<>(); // written by the sender and timer threads
       private List<Pod> pods;
 
       KUBE_PING_FOR_TESTING(String resourceFile) {
+         this(resourceFile, null);
+      }
+
+      KUBE_PING_FOR_TESTING(String resourceFile, String serviceName) {
          this.resourceFile = resourceFile;
+         this.serviceName = serviceName;
       }
 
       @Override
       public void init() throws Exception {
          super.init();
-         client = new TestClient(resourceFile);
+         client = serviceName == null ? new TestClient(resourceFile)
+               : new TestClient(resourceFile, "endpointslices").setServiceName(serviceName);
          pods = client.getPods(namespace, labels, true);
       }
 
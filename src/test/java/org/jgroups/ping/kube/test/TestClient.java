@@ -1,12 +1,14 @@
-
 package org.jgroups.ping.kube.test;
 
 import org.jgroups.logging.LogFactory;
 import org.jgroups.protocols.kubernetes.Client;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,17 +26,24 @@ public class TestClient extends Client {
     }
 
     public TestClient(String jsonFile) throws URISyntaxException, IOException {
+        this(jsonFile, "pods");
+    }
+
+    public TestClient(String jsonFile, String op) throws URISyntaxException, IOException {
         super(null, null, 0, 0, 0, 0,
               null, LogFactory.getLog(TestClient.class));
         String json = readFileToString(new File(TestClient.class.getResource(jsonFile).toURI()));
-        OPS.put("pods", json);
+        OPS.put(op, json);
     }
 
     @Override
-    protected String fetchFromKubernetes(String op, String namespace, String labels, boolean dump_requests) throws Exception {
+    protected InputStream openKubernetesStream(String url, String accept, int readTimeout) throws Exception {
+        int end = url.indexOf('?');
+        String path = end < 0 ? url : url.substring(0, end);
+        String op = path.substring(path.lastIndexOf('/') + 1);
         String value = OPS.get(op);
         if (value == null)
             throw new IllegalStateException("No such op: " + op);
-        return value;
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
     }
 }
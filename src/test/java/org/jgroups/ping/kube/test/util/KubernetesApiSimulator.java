@@ -0,0 +1,535 @@
+package org.jgroups.ping.kube.test.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An in-process Kubernetes API server for tests. It serves {@code /api/v1/namespaces/{ns}/pods} over HTTPS from pods
+ * added by the test, with label selectors, pagination (limit and continue), gzip compression, bearer token
+ * authentication and watches ({@code watch=1}), which stream the changes made by the test.
+ * <p>
+ * Faults can be injected for the next requests: latency, arbitrary HTTP status codes (e.g. 5xx), 429 with a
+ * Retry-After header, truncated bodies and bodies which are sent slowly ("slow drip").
+ * <pre>
+ * try(KubernetesApiSimulator api=KubernetesApiSimulator.start()) {
+ *     api.addPods("ns", 1000, Map.of("app", "test"));
+ *     api.inject(Fault.status(503), Fault.tooManyRequests(1));
+ *     Client client=new Client(api.getUrl(), ..., new TokenStreamProvider(api.getTokenFile(), api.getCaCertFile()), log);
+ * }
+ * </pre>
+ * The server certificate is issued for localhost and 127.0.0.1 and can be verified with {@link #getCaCertFile()}.
+ */
+public class KubernetesApiSimulator implements AutoCloseable {
+    private static final Pattern PODS = Pattern.compile("/api/v1/namespaces/([^/]+)/pods");
+    private static final String KEYSTORE = "/certificates/apiserver.p12", CERTIFICATE = "/certificates/apiserver.crt";
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+    private final HttpsServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "kube-api-simulator");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Path tokenFile;
+    private final Queue<Fault> faults = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger watches = new AtomicInteger();
+
+    // guarded by this
+    private final Map<String, Map<String, SimulatedPod>> namespaces = new HashMap<>();
+    private final List<Event> events = new ArrayList<>();
+    private int compactedEvents; // number of events dropped from the head of events
+    private long resourceVersion = 1000;
+    private long oldestWatchableVersion = resourceVersion;
+    private String token = "simulator-token";
+    private volatile long latency;
+    private volatile boolean closed;
+
+    private KubernetesApiSimulator() throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = KubernetesApiSimulator.class.getResourceAsStream(KEYSTORE)) {
+            keyStore.load(in, KEYSTORE_PASSWORD);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, KEYSTORE_PASSWORD);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+
+        tokenFile = Files.createTempFile("kube-api-simulator", ".token");
+        Files.writeString(tokenFile, token);
+
+        server = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(context));
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Starts a simulator on an ephemeral port of the loopback address
+     */
+    public static KubernetesApiSimulator start() throws Exception {
+        return new KubernetesApiSimulator();
+    }
+
+    /**
+     * @return the URL of the core API group, e.g. https://127.0.0.1:34567/api/v1
+     */
+    public String getUrl() {
+        return String.format("https://%s:%d/api/v1", getHost(), getPort());
+    }
+
+    public String getHost() {
+        return server.getAddress().getAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return a file containing the token accepted by the simulator
+     */
+    public String getTokenFile() {
+        return tokenFile.toString();
+    }
+
+    /**
+     * @return the PEM file of the server certificate
+     */
+    public String getCaCertFile() {
+        return KubernetesApiSimulator.class.getResource(CERTIFICATE).getFile();
+    }
+
+    /**
+     * Replaces the token accepted by the simulator (and the token in the token file); requests with the old token
+     * get a 401 Unauthorized
+     */
+    public synchronized void rotateToken(String newToken) throws IOException {
+        token = newToken;
+        Files.writeString(tokenFile, newToken);
+    }
+
+    /**
+     * Delays every response by the given time
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        this.latency = unit.toMillis(latency);
+    }
+
+    /**
+     * Applies the given faults to the next requests, one fault per request
+     */
+    public void inject(Fault... faults) {
+        this.faults.addAll(List.of(faults));
+    }
+
+    /**
+     * @return the number of requests received (including watches and failed requests)
+     */
+    public int getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of watch requests received
+     */
+    public int getWatches() {
+        return watches.get();
+    }
+
+    /**
+     * Adds count pods named pod-0 .. pod-(count-1), with IP addresses 10.x.y.z
+     */
+    public void addPods(String namespace, int count, Map<String, String> labels) {
+        for (int i = 0; i < count; i++)
+            addPod(namespace, "pod-" + i, "10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff), labels, true);
+    }
+
+    public synchronized void addPod(String namespace, String name, String ip, Map<String, String> labels, boolean ready) {
+        SimulatedPod pod = new SimulatedPod(namespace, name, ip, labels, ready, ++resourceVersion);
+        SimulatedPod old = namespaces.computeIfAbsent(namespace, ns -> new LinkedHashMap<>()).put(name, pod);
+        event(old == null ? "ADDED" : "MODIFIED", pod);
+    }
+
+    public synchronized void setReady(String namespace, String name, boolean ready) {
+        SimulatedPod pod = namespaces.getOrDefault(namespace, Map.of()).get(name);
+        if (pod == null)
+            throw new IllegalArgumentException(namespace + "/" + name);
+        SimulatedPod modified = new SimulatedPod(namespace, name, pod.ip, pod.labels, ready, ++resourceVersion);
+        namespaces.get(namespace).put(name, modified);
+        event("MODIFIED", modified);
+    }
+
+    public synchronized void deletePod(String namespace, String name) {
+        SimulatedPod pod = namespaces.getOrDefault(namespace, Map.of()).remove(name);
+        if (pod != null)
+            event("DELETED", new SimulatedPod(namespace, name, pod.ip, pod.labels, pod.ready, ++resourceVersion));
+    }
+
+    /**
+     * Drops the history of changes, like etcd compaction: watches from an older resourceVersion get a 410 Gone
+     * error event, after which clients have to list the pods again
+     */
+    public synchronized void compact() {
+        compactedEvents += events.size();
+        events.clear();
+        oldestWatchableVersion = resourceVersion;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        Files.deleteIfExists(tokenFile);
+    }
+
+    private void event(String type, SimulatedPod pod) {
+        events.add(new Event(type, pod));
+        notifyAll();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            Fault fault = faults.poll();
+            sleep(latency + (fault != null && fault.kind == Fault.Kind.LATENCY ? fault.delay : 0));
+
+            Matcher matcher = PODS.matcher(exchange.getRequestURI().getPath());
+            if (!"GET".equals(exchange.getRequestMethod()) || !matcher.matches()) {
+                sendStatus(exchange, 404, "NotFound", "the server could not find the requested resource", null);
+                return;
+            }
+            synchronized (this) {
+                if (!("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    sendStatus(exchange, 401, "Unauthorized", "Unauthorized", null);
+                    return;
+                }
+            }
+            if (fault != null && fault.kind == Fault.Kind.STATUS) {
+                sendStatus(exchange, fault.code, fault.code == 429 ? "TooManyRequests" : "InternalError",
+                           "injected fault", fault.retryAfter >= 0 ? String.valueOf(fault.retryAfter) : null);
+                return;
+            }
+
+            String namespace = matcher.group(1);
+            Map<String, String> params = parseQuery(exchange.getRequestURI());
+            Map<String, String> selector = parseSelector(params.get("labelSelector"));
+            if ("1".equals(params.get("watch")) || "true".equals(params.get("watch")))
+                watch(exchange, namespace, selector, params);
+            else
+                list(exchange, namespace, selector, params, fault);
+        }
+    }
+
+    private void list(HttpExchange exchange, String namespace, Map<String, String> selector, Map<String, String> params,
+                      Fault fault) throws IOException {
+        List<JsonObject> items = new ArrayList<>();
+        long version;
+        synchronized (this) {
+            for (SimulatedPod pod : namespaces.getOrDefault(namespace, Map.of()).values())
+                if (pod.matches(selector))
+                    items.add(pod.toJson());
+            version = resourceVersion;
+        }
+        int offset = params.containsKey("continue") ? Integer.parseInt(params.get("continue")) : 0;
+        int limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : Integer.MAX_VALUE;
+        int end = (int) Math.min(items.size(), (long) offset + limit);
+
+        JsonObjectBuilder metadata = Json.createObjectBuilder().add("resourceVersion", String.valueOf(version));
+        if (end < items.size())
+            metadata.add("continue", String.valueOf(end));
+        JsonObject list = Json.createObjectBuilder()
+              .add("kind", "PodList").add("apiVersion", "v1").add("metadata", metadata)
+              .add("items", Json.createArrayBuilder(items.subList(Math.min(offset, end), end)))
+              .build();
+        byte[] body = list.toString().getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (fault != null && fault.kind == Fault.Kind.SLOW_DRIP) {
+            exchange.sendResponseHeaders(200, 0); // chunked
+            OutputStream out = exchange.getResponseBody();
+            for (int i = 0; i < body.length && !closed; i += fault.chunkSize) {
+                out.write(body, i, Math.min(fault.chunkSize, body.length - i));
+                out.flush();
+                sleep(fault.delay);
+            }
+            return;
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            body = gzip(body);
+        }
+        if (fault != null && fault.kind == Fault.Kind.TRUNCATE) {
+            // announce the full length, but close the connection after half of the body
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body, 0, body.length / 2);
+            exchange.getResponseBody().flush();
+            throw new IOException("injected fault: truncated body"); // closes the connection
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void watch(HttpExchange exchange, String namespace, Map<String, String> selector, Map<String, String> params)
+          throws IOException {
+        watches.incrementAndGet();
+        long from = params.containsKey("resourceVersion") ? Long.parseLong(params.get("resourceVersion")) : 0;
+        long timeout = TimeUnit.SECONDS.toMillis(params.containsKey("timeoutSeconds") ? Long.parseLong(params.get("timeoutSeconds")) : 60);
+        long deadline = System.currentTimeMillis() + timeout;
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0); // chunked, one event per line
+        OutputStream out = exchange.getResponseBody();
+        synchronized (this) {
+            if (from < oldestWatchableVersion) {
+                JsonObject status = status(410, "Expired", "too old resource version: " + from);
+                writeEvent(out, Json.createObjectBuilder().add("type", "ERROR").add("object", status).build());
+                return;
+            }
+        }
+        int next;
+        synchronized (this) {
+            next = compactedEvents;
+        }
+        while (!closed) {
+            List<JsonObject> pending = new ArrayList<>();
+            synchronized (this) {
+                if (next < compactedEvents) { // the watch has fallen behind a compaction
+                    JsonObject status = status(410, "Expired", "too old resource version: " + from);
+                    writeEvent(out, Json.createObjectBuilder().add("type", "ERROR").add("object", status).build());
+                    return;
+                }
+                for (; next < compactedEvents + events.size(); next++) {
+                    Event event = events.get(next - compactedEvents);
+                    if (event.pod.resourceVersion > from && event.pod.namespace.equals(namespace) && event.pod.matches(selector))
+                        pending.add(Json.createObjectBuilder().add("type", event.type).add("object", event.pod.toJson()).build());
+                }
+                long wait = deadline - System.currentTimeMillis();
+                if (pending.isEmpty()) {
+                    if (wait <= 0)
+                        return;
+                    try {
+                        wait(wait);
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            for (JsonObject event : pending)
+                writeEvent(out, event);
+        }
+    }
+
+    private static void writeEvent(OutputStream out, JsonObject event) throws IOException {
+        out.write((event + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendStatus(HttpExchange exchange, int code, String reason, String message, String retryAfter) throws IOException {
+        byte[] body = status(code, reason, message).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (retryAfter != null)
+            exchange.getResponseHeaders().set("Retry-After", retryAfter);
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static JsonObject status(int code, String reason, String message) {
+        return Json.createObjectBuilder()
+              .add("kind", "Status").add("apiVersion", "v1").add("metadata", Json.createObjectBuilder())
+              .add("status", "Failure").add("message", message).add("reason", reason).add("code", code)
+              .build();
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> params = new HashMap<>();
+        String query = uri.getRawQuery();
+        if (query == null)
+            return params;
+        for (String param : query.split("&")) {
+            int index = param.indexOf('=');
+            String name = index < 0 ? param : param.substring(0, index), value = index < 0 ? "" : param.substring(index + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Parses an equality-based label selector, e.g. app=test,tier==cache
+     */
+    private static Map<String, String> parseSelector(String selector) {
+        Map<String, String> labels = new HashMap<>();
+        if (selector == null || selector.isEmpty())
+            return labels;
+        for (String requirement : selector.split(",")) {
+            String[] kv = requirement.split("==?", 2);
+            labels.put(kv[0].trim(), kv.length > 1 ? kv[1].trim() : "");
+        }
+        return labels;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0)
+            return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A fault applied to a single request
+     */
+    public static final class Fault {
+        enum Kind { LATENCY, STATUS, TRUNCATE, SLOW_DRIP }
+
+        private final Kind kind;
+        private final int  code;
+        private final long retryAfter; // seconds, -1 if no Retry-After header is sent
+        private final long delay;
+        private final int  chunkSize;
+
+        private Fault(Kind kind, int code, long retryAfter, long delay, int chunkSize) {
+            this.kind = kind;
+            this.code = code;
+            this.retryAfter = retryAfter;
+            this.delay = delay;
+            this.chunkSize = chunkSize;
+        }
+
+        /**
+         * Delays the response by the given time
+         */
+        public static Fault latency(long millis) {
+            return new Fault(Kind.LATENCY, 0, -1, millis, 0);
+        }
+
+        /**
+         * Fails the request with the given HTTP status code, e.g. 500 or 503
+         */
+        public static Fault status(int code) {
+            return new Fault(Kind.STATUS, code, -1, 0, 0);
+        }
+
+        /**
+         * Fails the request with 429 Too Many Requests and a Retry-After header
+         */
+        public static Fault tooManyRequests(long retryAfterSeconds) {
+            return new Fault(Kind.STATUS, 429, retryAfterSeconds, 0, 0);
+        }
+
+        /**
+         * Closes the connection after half of the body has been sent
+         */
+        public static Fault truncated() {
+            return new Fault(Kind.TRUNCATE, 0, -1, 0, 0);
+        }
+
+        /**
+         * Sends the (uncompressed) body in chunks of chunkSize bytes, waiting delay ms after every chunk
+         */
+        public static Fault slowDrip(int chunkSize, long delayMillis) {
+            return new Fault(Kind.SLOW_DRIP, 0, -1, delayMillis, chunkSize);
+        }
+    }
+
+    private static final class SimulatedPod {
+        final String namespace, name, ip;
+        final Map<String, String> labels;
+        final boolean ready;
+        final long resourceVersion;
+
+        SimulatedPod(String namespace, String name, String ip, Map<String, String> labels, boolean ready, long resourceVersion) {
+            this.namespace = namespace;
+            this.name = name;
+            this.ip = ip;
+            this.labels = labels != null ? Map.copyOf(labels) : Map.of();
+            this.ready = ready;
+            this.resourceVersion = resourceVersion;
+        }
+
+        boolean matches(Map<String, String> selector) {
+            for (Map.Entry<String, String> requirement : selector.entrySet())
+                if (!requirement.getValue().equals(labels.get(requirement.getKey())))
+                    return false;
+            return true;
+        }
+
+        JsonObject toJson() {
+            String status = ready ? "True" : "False";
+            return Json.createObjectBuilder()
+                  .add("metadata", Json.createObjectBuilder()
+                        .add("name", name).add("namespace", namespace)
+                        .add("resourceVersion", String.valueOf(resourceVersion))
+                        .add("labels", Json.createObjectBuilder(new HashMap<String, Object>(labels))))
+                  .add("status", Json.createObjectBuilder()
+                        .add("phase", "Running")
+                        .add("podIP", ip)
+                        .add("conditions", Json.createArrayBuilder()
+                              .add(Json.createObjectBuilder().add("type", "Ready").add("status", status)))
+                        .add("containerStatuses", Json.createArrayBuilder()
+                              .add(Json.createObjectBuilder().add("name", "app").add("ready", ready))))
+                  .build();
+        }
+    }
+
+    private static final class Event {
+        final String type;
+        final SimulatedPod pod;
+
+        Event(String type, SimulatedPod pod) {
+            this.type = type;
+            this.pod = pod;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.logging.LogFactory;
+import org.jgroups.protocols.kubernetes.CircuitBreaker.State;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+import org.jgroups.protocols.kubernetes.stream.StreamProvider;
+import org.jgroups.util.TimeScheduler;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+
+        breaker.acquire();
+        breaker.onFailure(new ConnectException("Connection refused"));
+        breaker.acquire();
+        breaker.onSuccess(); // resets the count
+        breaker.acquire();
+        breaker.onFailure(new HttpResponseException(503, "Service Unavailable"));
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        breaker.acquire();
+        breaker.onFailure(new IOException("Read timed out"));
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+        Assertions.assertThatThrownBy(breaker::acquire).isInstanceOf(CircuitBreaker.OpenException.class);
+    }
+
+    @Test
+    public void testClientErrorsDoNotCount() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+        breaker.acquire();
+        breaker.onFailure(new HttpResponseException(403, "Forbidden"));
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void testHalfOpenProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.acquire();
+        breaker.onFailure(new ConnectException("Connection refused"));
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+        // open time elapsed: a single probe is let through
+        breaker.acquire();
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        Assertions.assertThatThrownBy(breaker::acquire).isInstanceOf(CircuitBreaker.OpenException.class);
+
+        // a failed probe opens the breaker again, a successful one closes it
+        breaker.onFailure(new ConnectException("Connection refused"));
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        breaker.acquire();
+        breaker.onSuccess();
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    public void testCancelledProbe() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+        breaker.acquire();
+        breaker.onFailure(new ConnectException("Connection refused"));
+        breaker.openedAt -= breaker.openTime; // the open time has elapsed
+
+        breaker.acquire();
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        breaker.cancel(); // the probe was not sent: the next request is the probe
+        breaker.acquire();
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+    }
+
+    @Test
+    public void testOpenBreakerFailsFastWithoutRetries() {
+        AtomicInteger requests = new AtomicInteger();
+        StreamProvider unavailable = (url, headers, connectTimeout, readTimeout) -> {
+            requests.incrementAndGet();
+            throw new ConnectException("Connection refused");
+        };
+        Client client = new Client("https://localhost:6443/api/v1", null, 0, 0, 3, 0, unavailable, LogFactory.getLog(CircuitBreakerTest.class))
+                .setCircuitBreaker(new CircuitBreaker(2, 60_000));
+
+        // 2 failed attempts open the breaker, the 3rd attempt fails without sending a request
+        Assertions.assertThatThrownBy(() -> client.listPods("ns", null, false))
+                .hasRootCauseInstanceOf(CircuitBreaker.OpenException.class);
+        Assertions.assertThat(requests.get()).isEqualTo(2);
+        Assertions.assertThat(client.getCircuitBreaker().getState()).isEqualTo(State.OPEN);
+
+        // subsequent lists fail immediately, without retries
+        Assertions.assertThatThrownBy(() -> client.listPods("ns", null, false))
+                .hasRootCauseInstanceOf(CircuitBreaker.OpenException.class);
+        Assertions.assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testFailedBodyCounts() {
+        StreamProvider truncated = (url, headers, connectTimeout, readTimeout) -> new SequenceInputStream(
+                new ByteArrayInputStream("{\"items\":[".getBytes(StandardCharsets.UTF_8)), new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new SocketTimeoutException("Read timed out");
+                    }
+                });
+        Client client = new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, truncated, LogFactory.getLog(CircuitBreakerTest.class))
+                .setCircuitBreaker(new CircuitBreaker(1, 60_000));
+
+        // the response headers were received, but reading the body timed out
+        Assertions.assertThatThrownBy(() -> client.listPods("ns", null, false)).hasRootCauseInstanceOf(SocketTimeoutException.class);
+        Assertions.assertThat(client.getCircuitBreaker().getState()).isEqualTo(State.OPEN);
+    }
+
+    @Test
+    public void testWatchClosesHalfOpenBreakerWhenOpened() throws Exception {
+        StreamProvider available = (url, headers, connectTimeout, readTimeout) -> new ByteArrayInputStream(new byte[0]);
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        Client client = new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, available, LogFactory.getLog(CircuitBreakerTest.class))
+                .setCircuitBreaker(breaker);
+        breaker.acquire();
+        breaker.onFailure(new ConnectException("Connection refused"));
+
+        // a list used as probe keeps the breaker half-open until its body has been read
+        try (InputStream list = client.openKubernetesStream("https://localhost:6443/api/v1/pods", null, 0)) {
+            Assertions.assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        }
+        Assertions.assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        // a watch used as probe closes the breaker as soon as it has been opened
+        breaker.acquire();
+        breaker.onFailure(new ConnectException("Connection refused"));
+        try (InputStream watch = client.watchPods("ns", null, "1", 300)) {
+            Assertions.assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        }
+    }
+
+    @Test
+    public void testStalePodsOnlyWhenUnavailable() {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        KUBE_PING ping = new KUBE_PING();
+        ping.namespace = "ns";
+        ping.max_staleness = 60_000;
+        ping.client = new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, null, LogFactory.getLog(CircuitBreakerTest.class)) {
+            @Override
+            public CompletableFuture<PodList> getPodsAsync(String namespace, String labels, boolean dump_requests, TimeScheduler timer) {
+                return CompletableFuture.failedFuture(failure.get());
+            }
+        };
+        PodList known = new PodList(List.of(new Pod("a", "10.0.0.1", null, true)), "1");
+        ping.last_pods = known;
+        ping.last_pods_time = System.nanoTime();
+
+        failure.set(new CircuitBreaker.OpenException("circuit breaker is open"));
+        Assertions.assertThat(ping.readAllAsync().join()).isSameAs(known);
+        failure.set(new HttpResponseException(503, "Service Unavailable"));
+        Assertions.assertThat(ping.readAllAsync().join()).isSameAs(known);
+        failure.set(new HttpResponseException(403, "Forbidden"));
+        Assertions.assertThat(ping.readAllAsync().join()).isEmpty();
+        failure.set(new HttpResponseException(404, "Not Found"));
+        Assertions.assertThat(ping.readAllAsync().join()).isEmpty();
+    }
+
+    @Test
+    public void testOpenBreakerDoesNotWaitForRateLimiter() {
+        StreamProvider unavailable = (url, headers, connectTimeout, readTimeout) -> {
+            throw new ConnectException("Connection refused");
+        };
+        RateLimiter limiter = new RateLimiter(1, 1, 0);
+        Client client = new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, unavailable, LogFactory.getLog(CircuitBreakerTest.class))
+                .setCircuitBreaker(new CircuitBreaker(1, 60_000)).setRateLimiter(limiter);
+        Assertions.assertThatThrownBy(() -> client.listPods("ns", null, false)).hasRootCauseInstanceOf(ConnectException.class);
+
+        // the rejected requests neither wait for nor take tokens (1 per second)
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThatThrownBy(() -> client.listPods("ns", null, false))
+                    .hasRootCauseInstanceOf(CircuitBreaker.OpenException.class);
+        }
+        Assertions.assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(500));
+        Assertions.assertThat(limiter.reserve()).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,69 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
+import org.junit.Test;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.EOFException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+public class ClientStatsTest {
+
+    @Test
+    public void testFailuresAreCountedByCause() {
+        ClientStats stats = new ClientStats();
+
+        stats.requestFailed(new HttpResponseException(503, "Service Unavailable"));
+        stats.requestFailed(new Exception("wrapped", new HttpResponseException(503, "Service Unavailable")));
+        stats.requestFailed(new SocketTimeoutException("Read timed out"));
+        stats.requestFailed(new ConnectException("Connection refused"));
+        stats.requestFailed(new SSLHandshakeException("PKIX path building failed"));
+        stats.requestFailed(new EOFException());
+        stats.requestRejected();
+        stats.parseFailed();
+        stats.requestSucceeded(TimeUnit.MILLISECONDS.toNanos(5));
+
+        Assertions.assertThat(stats.getRequests()).isEqualTo(7);
+        Assertions.assertThat(stats.getFailures()).isEqualTo(8);
+        Assertions.assertThat(stats.getFailures("http-503")).isEqualTo(2);
+        Assertions.assertThat(stats.getFailuresByCause())
+                .isEqualTo("circuit-open=1, connect=1, http-503=2, io=1, parse=1, timeout=1, tls=1");
+        Assertions.assertThat(stats.getLastSuccess()).isPositive();
+    }
+
+    @Test
+    public void testPercentilesOfMostRecentTimes() {
+        ClientStats.Times times = new ClientStats.Times(100);
+        for (int i = 1; i <= 1000; i++)
+            times.add(i);
+
+        Assertions.assertThat(times.count()).isEqualTo(1000);
+        Assertions.assertThat(times.min()).isEqualTo(1);
+        Assertions.assertThat(times.max()).isEqualTo(1000);
+        Assertions.assertThat(times.average()).isEqualTo(500.5);
+        // only the last 100 times (901 .. 1000) are kept for percentiles
+        Assertions.assertThat(times.percentile(50)).isEqualTo(950);
+        Assertions.assertThat(times.percentile(99)).isEqualTo(999);
+        Assertions.assertThat(times.percentile(99.9)).isEqualTo(1000);
+        Assertions.assertThat(times.percentiles()).startsWith("p50=").contains("p99.9=");
+    }
+
+    @Test
+    public void testReset() {
+        ClientStats stats = new ClientStats();
+        stats.requestSucceeded(1000);
+        stats.requestFailed(new ConnectException("Connection refused"));
+        stats.parsed(1000);
+
+        stats.reset();
+
+        Assertions.assertThat(stats.getRequests()).isZero();
+        Assertions.assertThat(stats.getFailures()).isZero();
+        Assertions.assertThat(stats.getRequestTimes().count()).isZero();
+        Assertions.assertThat(stats.getParseTimes().percentile(50)).isZero();
+        Assertions.assertThat(stats.getRequestTimes().toString()).isEqualTo("n/a");
+    }
+}
@@ -0,0 +1,72 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.stack.IpAddress;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DiscoveryTargetsTest {
+
+    @Test
+    public void testUnchangedPodsReuseTargets() {
+        //given
+        DiscoveryTargets targets = new DiscoveryTargets();
+        DiscoveryTargets.Targets first = targets.update(pods(1000), true, 7800, 3, this::fail);
+
+        //when
+        DiscoveryTargets.Targets second = targets.update(pods(1000), true, 7800, 3, this::fail);
+
+        //then
+        Assertions.assertThat(first.size()).isEqualTo(4000);
+        Assertions.assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    public void testChangedPodsReuseAddressesOfUnchangedPods() throws Exception {
+        //given
+        DiscoveryTargets targets = new DiscoveryTargets();
+        DiscoveryTargets.Targets first = targets.update(pods(3), true, 7800, 1, this::fail);
+        List<Pod> pods = pods(3);
+        pods.remove(0);
+        pods.add(new Pod("pod-new", "10.1.0.1", null, true));
+
+        //when
+        DiscoveryTargets.Targets second = targets.update(pods, true, 7800, 1, this::fail);
+
+        //then
+        Assertions.assertThat(second.addresses()).containsOnlyKeys("10.0.0.1", "10.0.0.2", "10.1.0.1");
+        Assertions.assertThat(second.addresses().get("10.0.0.1")).isSameAs(first.addresses().get("10.0.0.1"));
+        Assertions.assertThat(second.contains(new IpAddress("10.1.0.1", 7801))).isTrue();
+        Assertions.assertThat(second.contains(new IpAddress("10.0.0.0", 7800))).isFalse();
+    }
+
+    @Test
+    public void testReadinessAndPortsAreHonored() throws Exception {
+        //given
+        DiscoveryTargets targets = new DiscoveryTargets();
+        List<Pod> pods = pods(2);
+        pods.set(1, new Pod("pod-1", "10.0.0.1", null, false));
+
+        //when
+        DiscoveryTargets.Targets ready = targets.update(pods, false, 7800, 0, this::fail);
+        DiscoveryTargets.Targets otherPort = targets.update(pods, false, 7900, 0, this::fail);
+
+        //then
+        Assertions.assertThat(ready.addresses()).containsOnlyKeys("10.0.0.0");
+        Assertions.assertThat(otherPort.contains(new IpAddress("10.0.0.0", 7900))).isTrue();
+        Assertions.assertThat(otherPort.contains(new IpAddress("10.0.0.0", 7800))).isFalse();
+    }
+
+    private static List<Pod> pods(int count) {
+        List<Pod> pods = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            pods.add(new Pod("pod-" + i, "10.0." + (i / 256) + "." + (i % 256), null, true));
+        return pods;
+    }
+
+    private void fail(Pod pod, Exception ex) {
+        throw new AssertionError("failed creating address of " + pod, ex);
+    }
+}
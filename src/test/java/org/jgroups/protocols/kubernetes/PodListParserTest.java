@@ -0,0 +1,89 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.logging.LogFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies that {@link PodListParser} returns exactly the same pods as the DOM based
+ * {@link Client#parseJsonResult(String, String, String)}.
+ */
+public class PodListParserTest {
+
+    private static final String[] FIXTURES = {"/pods.json", "/pods_without_ports.json", "/complex_pods.json",
+            "/unknown_pods.json", "/openshift_rolling_update.json", "/replicaset_rolling_update.json",
+            "/statefulset_rolling_update.json"};
+
+    private static final String EDGE_CASES = "{\"apiVersion\":\"v1\",\"items\":[" +
+            // not ready: one container not ready; managedFields and spec must be skipped
+            "{\"metadata\":{\"name\":\"a\",\"managedFields\":[{\"fieldsV1\":{\"f:status\":{\"f:podIP\":{}}}}]," +
+            "\"labels\":{\"deployment\":\"d-1\",\"controller-revision-hash\":\"r-1\"}},\"spec\":{\"containers\":[{\"ready\":true}]}," +
+            "\"status\":{\"phase\":\"Running\",\"podIP\":\"10.0.0.1\",\"containerStatuses\":[{\"ready\":true},{\"ready\":false}]," +
+            "\"conditions\":[{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            // ready: status before type in the condition, non-boolean and non-string values are ignored
+            "{\"metadata\":{\"name\":\"b\",\"labels\":{\"pod-template-hash\":{\"x\":1},\"controller-revision-hash\":\"r-2\"}}," +
+            "\"status\":{\"phase\":\"running\",\"message\":null,\"reason\":[1],\"podIP\":\"10.0.0.2\"," +
+            "\"conditions\":[{\"status\":\"True\",\"type\":\"ready\"}]}}," +
+            // not ready: reason is set
+            "{\"metadata\":{\"name\":\"c\"},\"status\":{\"phase\":\"Running\",\"reason\":\"Evicted\",\"podIP\":\"10.0.0.3\"," +
+            "\"conditions\":[{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            // not ready: container readiness is not a boolean
+            "{\"metadata\":{\"name\":\"d\"},\"status\":{\"phase\":\"Running\",\"podIP\":\"10.0.0.4\"," +
+            "\"containerStatuses\":[{\"ready\":\"true\"}],\"conditions\":[{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            // skipped: no IP
+            "{\"metadata\":{\"name\":\"e\"},\"status\":{\"phase\":\"Pending\"}}," +
+            // not ready: no status at all
+            "{\"metadata\":{\"name\":\"f\"},\"status\":{\"podIP\":\"10.0.0.6\"}}" +
+            "],\"metadata\":{\"resourceVersion\":\"4711\"}}";
+
+    private final Client client = new Client("http://localhost", null, 0, 0, 1, 0, null,
+                                             LogFactory.getLog(PodListParserTest.class));
+
+    @Test
+    public void testFixtures() throws Exception {
+        for (String fixture : FIXTURES) {
+            String json = Utils.readFileToString(new File(PodListParserTest.class.getResource(fixture).toURI()));
+            assertSameResult(json);
+        }
+    }
+
+    @Test
+    public void testEdgeCases() throws Exception {
+        PodList pods = assertSameResult(EDGE_CASES);
+        Assertions.assertThat(describe(pods)).containsExactly(
+                "a/10.0.0.1/d-1/false", "b/10.0.0.2/r-2/true", "c/10.0.0.3/null/false", "d/10.0.0.4/null/false",
+                "f/10.0.0.6/null/false");
+        Assertions.assertThat(pods.getResourceVersion()).isEqualTo("4711");
+    }
+
+    @Test
+    public void testNotAPodList() throws Exception {
+        Assertions.assertThat(parse("[1, 2]")).isEmpty();
+        Assertions.assertThat(parse("{\"kind\":\"Status\",\"code\":403}")).isEmpty();
+        Assertions.assertThat(parse("{\"items\":[{\"metadata\":")).isEmpty();
+    }
+
+    private PodList assertSameResult(String json) throws Exception {
+        PodList expected = client.parseJsonResult(json, null, null);
+        PodList actual = parse(json);
+        Assertions.assertThat(describe(actual)).isEqualTo(describe(expected));
+        Assertions.assertThat(actual.getResourceVersion()).isEqualTo(expected.getResourceVersion());
+        return actual;
+    }
+
+    private PodList parse(String json) throws Exception {
+        return client.parseJsonStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), null, null);
+    }
+
+    private static List<String> describe(List<Pod> pods) {
+        return pods.stream()
+                .map(p -> p.getName() + "/" + p.getIp() + "/" + p.getPodGroup() + "/" + p.isReady())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,39 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+
+public class PodListTest {
+
+    private final PodList pods = new PodList(List.of(
+            new Pod("a-1", "10.0.0.1", "a", true),
+            new Pod("a-11", "10.0.0.11", "a", false),
+            new Pod("b-1", "10.0.1.1", "b", true),
+            new Pod("c-1", "fd00::1", null, true)), "42");
+
+    @Test
+    public void testLookupByIpIsExact() throws Exception {
+        //when //then
+        Assertions.assertThat(pods.getPod("10.0.0.1").getName()).isEqualTo("a-1");
+        Assertions.assertThat(pods.getPod("10.0.0.11").getName()).isEqualTo("a-11");
+        Assertions.assertThat(pods.getPod("0.0.0.1")).isNull();
+        Assertions.assertThat(pods.getPod(InetAddress.getByName("10.0.1.1")).getName()).isEqualTo("b-1");
+        Assertions.assertThat(pods.getPod(InetAddress.getByName("fd00:0:0:0:0:0:0:1")).getName()).isEqualTo("c-1");
+        Assertions.assertThat(pods.getPod(InetAddress.getByName("fd00::1")).getName()).isEqualTo("c-1");
+        Assertions.assertThat(pods.getPod("fd00::1").getName()).isEqualTo("c-1");
+        Assertions.assertThat(pods.getPod(InetAddress.getByName("fd00::2"))).isNull();
+    }
+
+    @Test
+    public void testLookupByGroupAndReadiness() {
+        //when //then
+        Assertions.assertThat(pods.getPodsInGroup("a")).extracting(Pod::getName).containsExactly("a-1", "a-11");
+        Assertions.assertThat(pods.getPodsInGroup(null)).extracting(Pod::getName).containsExactly("c-1");
+        Assertions.assertThat(pods.getPodsInGroup("d")).isEmpty();
+        Assertions.assertThat(pods.getReadyPods()).extracting(Pod::getName).containsExactly("a-1", "b-1", "c-1");
+        Assertions.assertThat(PodList.EMPTY.getReadyPods()).isEmpty();
+    }
+}
@@ -0,0 +1,51 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class PodSnapshotFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File file = new File(folder.getRoot(), "pods.bin");
+        PodSnapshotFile snapshot = new PodSnapshotFile(file.getPath());
+        Assertions.assertThat(snapshot.read()).isNull();
+
+        List<Pod> pods = List.of(new Pod("infinispan-0", "10.0.0.1", "6569c544b", true),
+                                 new Pod("infinispan-1", "10.0.0.2", null, false));
+        long before = System.currentTimeMillis();
+        snapshot.write(pods, "4711");
+
+        PodList read = new PodSnapshotFile(file.getPath()).read();
+        Assertions.assertThat(read).containsExactlyElementsOf(pods);
+        Assertions.assertThat(read.get(0).isReady()).isTrue();
+        Assertions.assertThat(read.get(1).isReady()).isFalse();
+        Assertions.assertThat(read.getResourceVersion()).isEqualTo("4711");
+        Assertions.assertThat(snapshot.read()).hasSize(2);
+        Assertions.assertThat(snapshot.getTime()).isGreaterThanOrEqualTo(before);
+        // only the snapshot is left, no temporary files
+        Assertions.assertThat(folder.getRoot().list()).containsExactly("pods.bin");
+    }
+
+    @Test
+    public void testTruncatedFile() throws Exception {
+        File file = new File(folder.getRoot(), "pods.bin");
+        PodSnapshotFile snapshot = new PodSnapshotFile(file.getPath());
+        snapshot.write(List.of(new Pod("infinispan-0", "10.0.0.1", "6569c544b", true)), null);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 5));
+
+        Assertions.assertThatThrownBy(snapshot::read).isInstanceOf(IOException.class).hasMessageContaining("truncated");
+    }
+}
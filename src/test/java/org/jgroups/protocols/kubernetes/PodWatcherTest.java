@@ -0,0 +1,156 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.logging.LogFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+public class PodWatcherTest {
+
+    private static final String LIST = "{\"kind\":\"PodList\",\"metadata\":{\"resourceVersion\":\"100\"},\"items\":[" +
+            pod("a", "10.0.0.1", true) + "," + pod("b", "10.0.0.2", true) + "]}";
+
+    private static final String EVENTS = String.join("\n",
+            event("ADDED", pod("c", "10.0.0.3", true)),
+            event("MODIFIED", pod("a", "10.0.0.1", false)),
+            event("DELETED", pod("b", "10.0.0.2", true)),
+            "{\"type\":\"BOOKMARK\",\"object\":{\"kind\":\"Pod\",\"metadata\":{\"resourceVersion\":\"105\"}}}",
+            "");
+
+    @Test
+    public void testWatchEventsUpdatePods() throws Exception {
+        StubClient client = new StubClient();
+        PodWatcher watcher = new PodWatcher(client, "ns", "app=test", 60, 0, client.log);
+        watcher.running = true;
+
+        watcher.relist();
+        Assertions.assertThat(watcher.isSynced()).isTrue();
+        Assertions.assertThat(names(watcher.getPods())).containsExactly("a", "b");
+        Assertions.assertThat(watcher.getResourceVersion()).isEqualTo("100");
+
+        watcher.watch();
+        PodList pods = watcher.getPods();
+        Assertions.assertThat(names(pods)).containsExactly("a", "c");
+        Assertions.assertThat(pods.get(0).isReady()).isFalse();
+        Assertions.assertThat(watcher.getResourceVersion()).isEqualTo("105");
+        Assertions.assertThat(client.urls.get(1))
+                .contains("watch=1", "resourceVersion=100", "allowWatchBookmarks=true", "timeoutSeconds=60");
+    }
+
+    @Test
+    public void testExpiredResourceVersionTriggersRelist() throws Exception {
+        StubClient client = new StubClient();
+        PodWatcher watcher = new PodWatcher(client, "ns", null, 60, 0, client.log);
+        watcher.relist();
+
+        boolean proceed = watcher.handleEvent("{\"type\":\"ERROR\",\"object\":{\"kind\":\"Status\",\"code\":410}}");
+        Assertions.assertThat(proceed).isFalse();
+        Assertions.assertThat(watcher.getResourceVersion()).isNull();
+        // the last known pods are kept until the next list
+        Assertions.assertThat(names(watcher.getPods())).containsExactly("a", "b");
+    }
+
+    @Test
+    public void testFailedRelistIsNotSynced() throws Exception {
+        StubClient client = new StubClient();
+        PodWatcher watcher = new PodWatcher(client, "ns", null, 60, 0, client.log);
+        watcher.relist();
+        Assertions.assertThat(watcher.isSynced()).isTrue();
+
+        client.fail = true;
+        Assertions.assertThatThrownBy(watcher::relist).hasRootCauseInstanceOf(IOException.class);
+        Assertions.assertThat(watcher.isSynced()).isFalse();
+    }
+
+    @Test
+    public void testEmptyWatchIsNotProductive() throws Exception {
+        StubClient client = new StubClient();
+        client.events = "";
+        PodWatcher watcher = new PodWatcher(client, "ns", null, 60, 0, client.log);
+        watcher.running = true;
+        watcher.relist();
+
+        Assertions.assertThat(watcher.watch()).isFalse();
+        client.events = EVENTS;
+        Assertions.assertThat(watcher.watch()).isTrue();
+    }
+
+    @Test(timeout = 10_000)
+    public void testStopWhileWatchIsOpenedClosesStream() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        PodWatcher[] watcher = new PodWatcher[1];
+        StubClient client = new StubClient() {
+            @Override
+            protected InputStream openKubernetesStream(String url, String accept, int readTimeout) {
+                if (!url.contains("watch=1"))
+                    return super.openKubernetesStream(url, accept, readTimeout);
+                watcher[0].stop(); // stopped before the stream is returned
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        try {
+                            closed.await(); // blocks like a watch without events
+                        } catch (InterruptedException e) {
+                            throw new InterruptedIOException();
+                        }
+                        return -1;
+                    }
+
+                    @Override
+                    public void close() {
+                        closed.countDown();
+                    }
+                };
+            }
+        };
+        watcher[0] = new PodWatcher(client, "ns", null, 60, 0, client.log);
+        watcher[0].running = true;
+        watcher[0].relist();
+
+        watcher[0].watch();
+        Assertions.assertThat(closed.getCount()).isZero();
+    }
+
+    private static List<String> names(List<Pod> pods) {
+        return pods.stream().map(Pod::getName).collect(Collectors.toList());
+    }
+
+    private static String pod(String name, String ip, boolean ready) {
+        return "{\"metadata\":{\"name\":\"" + name + "\",\"resourceVersion\":\"1\"},\"status\":{\"phase\":\"Running\"," +
+                "\"conditions\":[{\"type\":\"Ready\",\"status\":\"" + (ready ? "True" : "False") + "\"}]," +
+                "\"podIP\":\"" + ip + "\"}}";
+    }
+
+    private static String event(String type, String object) {
+        return "{\"type\":\"" + type + "\",\"object\":" + object + "}";
+    }
+
+    private static class StubClient extends Client {
+        final List<String> urls = new ArrayList<>();
+        volatile boolean fail;
+        volatile String events = EVENTS;
+
+        StubClient() {
+            super("https://localhost:6443/api/v1", null, 0, 0, 1, 0, null, LogFactory.getLog(PodWatcherTest.class));
+        }
+
+        @Override
+        protected InputStream openKubernetesStream(String url, String accept, int readTimeout) {
+            urls.add(url);
+            if (fail)
+                throw new UncheckedIOException(new IOException("Connection reset"));
+            String body = url.contains("watch=1") ? events : LIST;
+            return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.logging.LogFactory;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies that {@link ProtobufPodListParser} returns the same pods as {@link PodListParser} does for the equivalent
+ * JSON response.
+ */
+public class ProtobufPodListParserTest {
+
+    private static final String JSON = "{\"metadata\":{\"resourceVersion\":\"4711\",\"continue\":\"next\"},\"items\":[" +
+            "{\"metadata\":{\"name\":\"a\",\"labels\":{\"app\":\"x\",\"pod-template-hash\":\"h-1\"}}," +
+            "\"status\":{\"phase\":\"Running\",\"podIP\":\"10.0.0.1\",\"containerStatuses\":[{\"ready\":true}]," +
+            "\"conditions\":[{\"type\":\"Initialized\",\"status\":\"True\"},{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            "{\"metadata\":{\"name\":\"b\",\"labels\":{\"controller-revision-hash\":\"r-1\"}}," +
+            "\"status\":{\"phase\":\"Running\",\"podIP\":\"10.0.0.2\",\"containerStatuses\":[{\"ready\":true},{\"ready\":false}]," +
+            "\"conditions\":[{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            "{\"metadata\":{\"name\":\"c\"},\"status\":{\"phase\":\"Running\",\"reason\":\"Evicted\",\"podIP\":\"10.0.0.3\"," +
+            "\"conditions\":[{\"type\":\"Ready\",\"status\":\"True\"}]}}," +
+            "{\"metadata\":{\"name\":\"d\"},\"status\":{\"phase\":\"Pending\"}}" +
+            "]}";
+
+    private final ProtobufPodListParser parser = new ProtobufPodListParser(LogFactory.getLog(ProtobufPodListParserTest.class));
+
+    @Test
+    public void testSameResultAsJson() throws Exception {
+        PodList expected = new PodListParser(LogFactory.getLog(ProtobufPodListParserTest.class))
+                .parse(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(podList()));
+
+        Assertions.assertThat(ProtobufPodListParser.isProtobuf(in)).isTrue();
+        PodList actual = parser.parse(in);
+
+        Assertions.assertThat(describe(actual)).isEqualTo(describe(expected))
+                .containsExactly("a/10.0.0.1/h-1/true", "b/10.0.0.2/r-1/false", "c/10.0.0.3/null/false");
+        Assertions.assertThat(actual.getResourceVersion()).isEqualTo("4711");
+        Assertions.assertThat(actual.getContinue()).isEqualTo("next");
+    }
+
+    @Test
+    public void testJsonIsNotProtobuf() throws Exception {
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertThat(ProtobufPodListParser.isProtobuf(in)).isFalse();
+        Assertions.assertThat(in.read()).isEqualTo('{');
+    }
+
+    @Test
+    public void testTruncatedMessage() throws Exception {
+        byte[] data = podList();
+        byte[] truncated = Arrays.copyOf(data, data.length - 10);
+        Assertions.assertThatThrownBy(() -> parser.parse(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static List<String> describe(List<Pod> pods) {
+        return pods.stream()
+                .map(p -> p.getName() + "/" + p.getIp() + "/" + p.getPodGroup() + "/" + p.isReady())
+                .collect(Collectors.toList());
+    }
+
+    /** Encodes the pods of {@link #JSON} the way the API server does, including empty strings and unused fields */
+    private static byte[] podList() throws IOException {
+        List<byte[]> items = new ArrayList<>();
+        items.add(pod("a", new String[]{"app", "x", "pod-template-hash", "h-1"}, "Running", "", "10.0.0.1",
+                      new boolean[]{true}, "Initialized", "True", "Ready", "True"));
+        items.add(pod("b", new String[]{"controller-revision-hash", "r-1"}, "Running", "", "10.0.0.2",
+                      new boolean[]{true, false}, "Ready", "True"));
+        items.add(pod("c", new String[0], "Running", "Evicted", "10.0.0.3", new boolean[0], "Ready", "True"));
+        items.add(pod("d", new String[0], "Pending", "", "", new boolean[0]));
+
+        Message list = new Message()
+                .message(1, new Message().string(1, "").string(2, "4711").string(3, "next").varint(4, 0));
+        for (byte[] item : items)
+            list.bytes(2, item);
+
+        Message unknown = new Message()
+                .message(1, new Message().string(1, "v1").string(2, "PodList"))
+                .message(2, list)
+                .string(3, "")
+                .string(4, "");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{'k', '8', 's', 0});
+        out.write(unknown.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static byte[] pod(String name, String[] labels, String phase, String reason, String ip, boolean[] containers,
+                              String... conditions) {
+        Message metadata = new Message().string(1, name).string(3, "ns").string(5, "uid-" + name)
+                .varint(7, 1)
+                .message(17, new Message().string(1, "kubelet").string(2, "Update"));
+        for (int i = 0; i < labels.length; i += 2)
+            metadata.message(11, new Message().string(1, labels[i]).string(2, labels[i + 1]));
+
+        Message status = new Message().string(1, phase).string(3, "").string(4, reason).string(5, "192.168.0.1")
+                .string(6, ip);
+        for (int i = 0; i < conditions.length; i += 2)
+            status.message(2, new Message().string(1, conditions[i]).string(2, conditions[i + 1]).string(5, ""));
+        for (boolean ready : containers)
+            status.message(8, new Message().string(1, "main").varint(4, ready ? 1 : 0).varint(5, 0).fixed64(99));
+
+        return new Message()
+                .message(1, metadata)
+                .message(2, new Message().string(9, "default"))
+                .message(3, status)
+                .toByteArray();
+    }
+
+    /** Minimal protobuf encoder */
+    private static class Message {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Message varint(int field, long value) {
+            writeVarint((long) field << 3);
+            writeVarint(value);
+            return this;
+        }
+
+        Message fixed64(int field) {
+            writeVarint((long) field << 3 | 1);
+            out.writeBytes(new byte[8]);
+            return this;
+        }
+
+        Message string(int field, String value) {
+            return bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        Message message(int field, Message value) {
+            return bytes(field, value.toByteArray());
+        }
+
+        Message bytes(int field, byte[] value) {
+            writeVarint((long) field << 3 | 2);
+            writeVarint(value.length);
+            out.writeBytes(value);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testBurstThenRate() {
+        RateLimiter limiter = new RateLimiter(10, 3, 0);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(limiter.reserve()).isZero();
+        }
+        // the bucket is empty: the 4th and 5th requests wait for 1 and 2 tokens (100 and 200 ms) respectively
+        Assertions.assertThat(limiter.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+        Assertions.assertThat(limiter.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(150), TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testNoLimit() {
+        RateLimiter limiter = new RateLimiter(0, 1, 0);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(limiter.reserve()).isZero();
+        }
+    }
+
+    @Test
+    public void testTryAcquireDoesNotTakeTokenWhenDelayed() {
+        RateLimiter limiter = new RateLimiter(10, 1, 0);
+        Assertions.assertThat(limiter.tryAcquire()).isZero();
+        // the bucket is empty: the token is available in 100 ms, and repeated attempts don't queue up
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertThat(limiter.tryAcquire()).isBetween(TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void testPause() {
+        RateLimiter limiter = new RateLimiter(0, 1, 0);
+        limiter.pause(1000);
+        limiter.pause(10); // a shorter pause doesn't shorten the current one
+        Assertions.assertThat(limiter.reserve()).isBetween(TimeUnit.MILLISECONDS.toNanos(900), TimeUnit.MILLISECONDS.toNanos(1000));
+        Assertions.assertThat(limiter.tryAcquire()).isBetween(TimeUnit.MILLISECONDS.toNanos(900), TimeUnit.MILLISECONDS.toNanos(1000));
+    }
+
+    @Test
+    public void testStartupDelay() {
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertThat(new RateLimiter(0, 1, 1000).reserve()).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(1000));
+        }
+    }
+}
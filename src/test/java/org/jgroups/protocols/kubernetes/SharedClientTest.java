@@ -0,0 +1,143 @@
+package org.jgroups.protocols.kubernetes;
+
+import org.assertj.core.api.Assertions;
+import org.jgroups.logging.LogFactory;
+import org.jgroups.protocols.kubernetes.stream.StreamProvider;
+import org.jgroups.util.TimeScheduler;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedClientTest {
+
+    @Test
+    public void testClientIsSharedUntilLastRelease() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        List<?> key = List.of("https://localhost:6443/api/v1", "ns", "app=test");
+
+        SharedClient first = SharedClient.acquire(key, () -> newClient(created));
+        SharedClient second = SharedClient.acquire(List.of("https://localhost:6443/api/v1", "ns", "app=test"), () -> newClient(created));
+        SharedClient other = SharedClient.acquire(List.of("https://localhost:6443/api/v1", "ns", "app=other"), () -> newClient(created));
+
+        Assertions.assertThat(second).isSameAs(first);
+        Assertions.assertThat(second.getClient()).isSameAs(first.getClient());
+        Assertions.assertThat(other.getClient()).isNotSameAs(first.getClient());
+        Assertions.assertThat(created.get()).isEqualTo(2);
+        Assertions.assertThat(first.getReferences()).isEqualTo(2);
+
+        first.release();
+        Assertions.assertThat(SharedClient.acquire(key, () -> newClient(created))).isSameAs(second);
+        Assertions.assertThat(created.get()).isEqualTo(2);
+
+        second.release();
+        second.release();
+        other.release();
+        Assertions.assertThat(second.getReferences()).isZero();
+
+        SharedClient third = SharedClient.acquire(key, () -> newClient(created));
+        Assertions.assertThat(third).isNotSameAs(first);
+        Assertions.assertThat(created.get()).isEqualTo(3);
+        third.release();
+    }
+
+    @Test
+    public void testWatcherIsStoppedByLastProtocol() throws Exception {
+        SharedClient shared = SharedClient.acquire(List.of("watcher"), () -> newClient(new AtomicInteger()));
+        Client client = shared.getClient();
+
+        PodWatcher first = shared.startWatcher(() -> new PodWatcher(client, "ns", null, 60, 1000, client.log));
+        PodWatcher second = shared.startWatcher(() -> new PodWatcher(client, "ns", null, 60, 1000, client.log));
+        Assertions.assertThat(second).isSameAs(first);
+
+        shared.stopWatcher();
+        Assertions.assertThat(first.running).isTrue();
+        shared.stopWatcher();
+        Assertions.assertThat(first.running).isFalse();
+        shared.release();
+    }
+
+    @Test
+    public void testLastReleaseStopsWatcherAndClosesClient() throws Exception {
+        AtomicInteger closed = new AtomicInteger();
+        SharedClient first = SharedClient.acquire(List.of("close"), () -> newClient(new AtomicInteger(), closed));
+        SharedClient second = SharedClient.acquire(List.of("close"), () -> newClient(new AtomicInteger(), closed));
+        Client client = first.getClient();
+        PodWatcher watcher = first.startWatcher(() -> new PodWatcher(client, "ns", null, 60, 1000, client.log));
+
+        first.release();
+        Assertions.assertThat(closed.get()).isZero();
+        Assertions.assertThat(watcher.running).isTrue();
+
+        second.release(); // the last protocol didn't stop the watcher, e.g. because start() failed
+        Assertions.assertThat(closed.get()).isEqualTo(1);
+        Assertions.assertThat(watcher.running).isFalse();
+    }
+
+    @Test
+    public void testPodsAreSharedUntilMaxAge() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        SharedClient shared = SharedClient.acquire(List.of("pods"), () -> new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0,
+                null, LogFactory.getLog(SharedClientTest.class)) {
+            @Override
+            public CompletableFuture<PodList> getPodsAsync(String namespace, String labels, boolean dump_requests, TimeScheduler timer) {
+                return requests.incrementAndGet() == 1 ? CompletableFuture.failedFuture(new IOException("no API server"))
+                        : CompletableFuture.completedFuture(PodList.EMPTY);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        try {
+            Assertions.assertThat(shared.getPodsAsync("ns", null, false, null, 60000)).isCompletedExceptionally();
+            Assertions.assertThat(shared.getPodsAsync("ns", null, false, null, 60000).join()).isSameAs(PodList.EMPTY);
+            Assertions.assertThat(shared.getPodsAsync("ns", null, false, null, 60000).join()).isSameAs(PodList.EMPTY);
+            Assertions.assertThat(requests.get()).isEqualTo(2); // failures are not cached
+
+            Thread.sleep(10);
+            shared.getPodsAsync("ns", null, false, null, 1).join();
+            Assertions.assertThat(requests.get()).isEqualTo(3);
+            shared.getPodsAsync("ns", null, false, null, 0).join();
+            Assertions.assertThat(requests.get()).isEqualTo(4);
+        } finally {
+            shared.release();
+        }
+    }
+
+    @Test
+    public void testKeyIsDigested() {
+        String digest = SharedClient.digest(Arrays.asList("https://localhost:6443/api/v1", "ns", "secret", null));
+
+        Assertions.assertThat(digest).doesNotContain("secret");
+        Assertions.assertThat(digest).isEqualTo(SharedClient.digest(Arrays.asList("https://localhost:6443/api/v1", "ns", "secret", null)));
+        Assertions.assertThat(digest).isNotEqualTo(SharedClient.digest(Arrays.asList("https://localhost:6443/api/v1", "ns", "other", null)));
+        Assertions.assertThat(SharedClient.digest(List.of("a, b"))).isNotEqualTo(SharedClient.digest(List.of("a", "b")));
+        Assertions.assertThat(SharedClient.digest(Arrays.asList("a", null))).isNotEqualTo(SharedClient.digest(List.of("a", "null")));
+    }
+
+    private static Client newClient(AtomicInteger created) {
+        return newClient(created, new AtomicInteger());
+    }
+
+    private static Client newClient(AtomicInteger created, AtomicInteger closed) {
+        created.incrementAndGet();
+        StreamProvider streamProvider = new StreamProvider() {
+            @Override
+            public InputStream openStream(String url, Map<String, String> headers, int connectTimeout, int readTimeout) throws IOException {
+                throw new IOException("no API server");
+            }
+
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        return new Client("https://localhost:6443/api/v1", null, 0, 0, 1, 0, streamProvider, LogFactory.getLog(SharedClientTest.class));
+    }
+}
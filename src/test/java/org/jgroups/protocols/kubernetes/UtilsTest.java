@@ -1,9 +1,12 @@
 package org.jgroups.protocols.kubernetes;
 
 import org.assertj.core.api.Assertions;
+import org.jgroups.protocols.kubernetes.stream.HttpResponseException;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class UtilsTest {
 
@@ -18,4 +21,48 @@ public class UtilsTest {
         Assertions.assertThat(sanitized.get("Authorization")).isEqualTo("***");
         Assertions.assertThat(sanitized.get("authorization")).isEqualTo("***");
     }
+
+    @Test
+    public void testBackoff() {
+        Assertions.assertThat(Utils.backoff(3, 1000, 1000)).isEqualTo(1000);
+        Assertions.assertThat(Utils.backoff(3, 0, 1000)).isZero();
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertThat(Utils.backoff(1, 100, 10_000)).isBetween(0L, 100L);
+            Assertions.assertThat(Utils.backoff(3, 100, 10_000)).isBetween(0L, 400L);
+            Assertions.assertThat(Utils.backoff(100, 100, 10_000)).isBetween(0L, 10_000L);
+        }
+    }
+
+    @Test
+    public void testNonRetryableFailuresFailFast() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        Assertions.assertThatThrownBy(() -> Utils.execute(() -> {
+            attempts.incrementAndGet();
+            throw new HttpResponseException(403, "Forbidden");
+        }, 3, 0, true)).hasRootCauseInstanceOf(HttpResponseException.class);
+        Assertions.assertThat(attempts.get()).isEqualTo(1);
+
+        attempts.set(0);
+        Assertions.assertThat(Utils.execute(() -> {
+            if (attempts.incrementAndGet() < 3)
+                throw new HttpResponseException(429, "Too Many Requests");
+            return "ok";
+        }, 3, 0, true)).isEqualTo("ok");
+
+        Assertions.assertThat(Utils.isRetryable(new HttpResponseException(401, "Unauthorized"))).isTrue();
+        Assertions.assertThat(Utils.isRetryable(new HttpResponseException(408, "Request Timeout"))).isTrue();
+        Assertions.assertThat(Utils.isRetryable(new Exception(new HttpResponseException(404, "Not Found")))).isFalse();
+        Assertions.assertThat(Utils.isRetryable(new HttpResponseException(503, "Service Unavailable"))).isTrue();
+        Assertions.assertThat(Utils.isRetryable(new IOException("connection refused"))).isTrue();
+    }
+
+    @Test
+    public void testRetryDelayObeysRetryAfter() {
+        Assertions.assertThat(Utils.retryDelay(new HttpResponseException(429, "Too Many Requests", 3000), 1, 100, 10_000)).isEqualTo(3000);
+        Assertions.assertThat(Utils.retryDelay(new Exception(new HttpResponseException(503, "Unavailable", 0)), 5, 100, 10_000)).isZero();
+        Assertions.assertThat(Utils.retryDelay(new HttpResponseException(429, "Too Many Requests"), 1, 100, 100)).isEqualTo(100);
+        Assertions.assertThat(HttpResponseException.parseRetryAfter("7")).isEqualTo(7000);
+        Assertions.assertThat(HttpResponseException.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT")).isZero();
+        Assertions.assertThat(HttpResponseException.parseRetryAfter("soon")).isEqualTo(-1);
+    }
 }
@@ -17,17 +17,36 @@
 package org.jgroups.protocols.kubernetes.stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
+import com.sun.net.httpserver.HttpServer;
+import org.jgroups.util.Util;
 import org.junit.Test;
 
 /**
- * Verify {@link TokenStreamProvider} and {@link CertificateStreamProvider} correctly parse all certificates from the file.
+ * Verify {@link TokenStreamProvider} and {@link CertificateStreamProvider} correctly parse all certificates from the file,
+ * and the stream providers against a local HTTP server.
  *
  * @author Radoslav Husar
  */
@@ -56,4 +75,153 @@ public class StreamProviderTest {
                         .anyMatch(c -> c.getSubjectDN().toString().startsWith(cn)))
         );
     }
+
+    @Test
+    public void testGzipCompression() throws Exception {
+        String body = "{\"items\":[]}".repeat(1000);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] response = body.getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(response);
+                }
+                response = compressed.toByteArray();
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/pods";
+
+            DefaultStreamProvider compressing = new DefaultStreamProvider();
+            try (InputStream in = compressing.openStream(url, new HashMap<>(), 1000, 1000)) {
+                assertEquals(body, Util.readContents(in));
+            }
+            assertEquals(body.length(), compressing.getBytesDecoded());
+            assertTrue(compressing.getBytesReceived() < compressing.getBytesDecoded() / 10);
+
+            DefaultStreamProvider plain = new DefaultStreamProvider();
+            plain.setCompression(false);
+            try (InputStream in = plain.openStream(url, new HashMap<>(), 1000, 1000)) {
+                assertEquals(body, Util.readContents(in));
+            }
+            assertEquals(body.length(), plain.getBytesReceived());
+            assertEquals(body.length(), plain.getBytesDecoded());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testHttpClientStreamProvider() throws Exception {
+        File tokenFile = File.createTempFile("token", null);
+        tokenFile.deleteOnExit();
+        Files.writeString(tokenFile.toPath(), "secret\n");
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            boolean authorized = "Bearer secret".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+            byte[] response = exchange.getRequestURI().getPath().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(authorized ? 200 : 401, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/pods";
+
+            HttpClientStreamProvider provider = HttpClientStreamProvider.withToken(tokenFile.getPath(), null);
+            for (int i = 0; i < 2; i++) {
+                try (InputStream in = provider.openStream(url, new HashMap<>(), 1000, 1000)) {
+                    assertEquals("/api/v1/pods", Util.readContents(in));
+                }
+            }
+            assertEquals(2 * "/api/v1/pods".length(), provider.getBytesDecoded());
+
+            HttpClientStreamProvider unauthorized = HttpClientStreamProvider.withToken(tokenFile.getPath() + ".missing", null);
+            try {
+                unauthorized.openStream(url, new HashMap<>(), 1000, 1000);
+                fail("expected HTTP 401");
+            } catch (HttpResponseException e) {
+                assertEquals(401, e.getResponseCode());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testUnclosedReadTimeoutStreamIsGarbageCollected() throws Exception {
+        InputStream in = new ReadTimeoutInputStream(new ByteArrayInputStream(new byte[10]), 10);
+        assertEquals(0, in.read());
+        WeakReference<InputStream> ref = new WeakReference<>(in);
+        in = null; // never closed and not at EOF, so the read timeout is still checked
+
+        // the scheduled checks must not keep the stream reachable
+        Util.waitUntilTrue(5000, 50, () -> {
+            System.gc();
+            return ref.get() == null;
+        });
+        assertNull(ref.get());
+    }
+
+    @Test
+    public void testTokenStreamProviderDoesNotModifyHeaders() throws Exception {
+        File tokenFile = File.createTempFile("token", null);
+        tokenFile.deleteOnExit();
+        Files.writeString(tokenFile.toPath(), "secret\n");
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            boolean authorized = "Bearer secret".equals(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(authorized ? 200 : 401, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/pods";
+            TokenStreamProvider provider = new TokenStreamProvider(tokenFile.getPath(), null);
+            Map<String, String> headers = Map.of("Accept", "application/json"); // immutable, like headers shared by requests
+            try (InputStream in = provider.openStream(url, headers, 1000, 1000)) {
+                assertEquals("", Util.readContents(in));
+            }
+            assertEquals(Map.of("Accept", "application/json"), headers);
+            try (InputStream in = provider.openStream(url, null, 1000, 1000)) {
+                assertEquals("", Util.readContents(in));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testRetryAfter() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().add("Retry-After", "2");
+            exchange.sendResponseHeaders(429, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v1/pods";
+            for (BaseStreamProvider provider : List.of(new DefaultStreamProvider(), HttpClientStreamProvider.withToken(null, null))) {
+                try {
+                    provider.openStream(url, new HashMap<>(), 1000, 1000);
+                    fail("expected HTTP 429");
+                } catch (HttpResponseException e) {
+                    assertEquals(429, e.getResponseCode());
+                    assertEquals(2000, e.getRetryAfter());
+                }
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
 }